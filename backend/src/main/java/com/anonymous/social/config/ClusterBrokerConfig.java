@@ -0,0 +1,39 @@
+package com.anonymous.social.config;
+
+import com.anonymous.social.service.ClusterMessageBus;
+import com.anonymous.social.service.LocalClusterMessageBus;
+import com.anonymous.social.service.TcpClusterMessageBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cluster bus for {@code chat.broker.mode=bus}: each node keeps its in-JVM broker and
+ * {@link ClusterFanoutInterceptor} mirrors /topic traffic to the other nodes over this bus.
+ */
+@Configuration
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "bus")
+public class ClusterBrokerConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ClusterMessageBus clusterMessageBus(@Value("${chat.broker.bus.transport:tcp}") String transport,
+                                               @Value("${chat.broker.bus.bind-address:}") String bindAddress,
+                                               @Value("${chat.broker.bus.port:7400}") int port,
+                                               @Value("${chat.broker.bus.peers:}") String peers,
+                                               @Value("${chat.broker.bus.secret:}") String secret,
+                                               @Value("${chat.broker.bus.queue-capacity:10000}") int queueCapacity,
+                                               @Value("${chat.broker.bus.hub:default}") String hub) {
+        if ("local".equals(transport)) {
+            return new LocalClusterMessageBus(hub);
+        }
+        List<String> peerList = Arrays.stream(peers.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+        return new TcpClusterMessageBus(bindAddress, port, peerList, secret, queueCapacity);
+    }
+}
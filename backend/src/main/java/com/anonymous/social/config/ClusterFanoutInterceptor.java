@@ -0,0 +1,79 @@
+package com.anonymous.social.config;
+
+import com.anonymous.social.service.ClusterMessageBus;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Broker-channel interceptor that publishes every /topic message produced on this node to the
+ * cluster bus, and replays frames from other nodes into the local broker so their subscribers
+ * here receive them. Replayed messages carry {@link #RELAYED_HEADER} and are not published again.
+ *
+ * Only /topic is mirrored: /user and /queue destinations resolve to sessions of this node. So are
+ * messages sent with the {@link #NODE_LOCAL_HEADER} native header, whose payload only makes sense on
+ * the node that produced it (presence deltas, see PresenceRegistry). Bus frames for destinations
+ * outside /topic belong to other receivers and are not replayed here.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "bus")
+public class ClusterFanoutInterceptor implements ChannelInterceptor {
+
+    static final String RELAYED_HEADER = "clusterRelayed";
+
+    public static final String NODE_LOCAL_HEADER = "x-node-local";
+
+    @Autowired
+    private ClusterMessageBus clusterMessageBus;
+
+    @Autowired
+    @Lazy
+    @Qualifier("brokerChannel")
+    private MessageChannel brokerChannel;
+
+    @PostConstruct
+    public void init() {
+        clusterMessageBus.subscribe(this::deliver);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE
+                && destination != null && destination.startsWith("/topic/")
+                && accessor.getHeader(RELAYED_HEADER) == null
+                && accessor.getFirstNativeHeader(NODE_LOCAL_HEADER) == null) {
+            byte[] payload = message.getPayload() instanceof byte[] bytes ? bytes
+                    : message.getPayload().toString().getBytes(StandardCharsets.UTF_8);
+            MimeType contentType = accessor.getContentType();
+            clusterMessageBus.publish(new ClusterMessageBus.Frame(destination,
+                    contentType != null ? contentType.toString() : null, payload));
+        }
+        return message;
+    }
+
+    private void deliver(ClusterMessageBus.Frame frame) {
+        if (!frame.getDestination().startsWith("/topic/")) return;
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(frame.getDestination());
+        if (frame.getContentType() != null) {
+            accessor.setContentType(MimeType.valueOf(frame.getContentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        accessor.setLeaveMutable(true);
+        brokerChannel.send(MessageBuilder.createMessage(frame.getPayload(), accessor.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.anonymous.social.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves every pooled id_generators row past the ids already in its table before anything is
+ * inserted. Tables filled while ids were AUTO_INCREMENT would otherwise collide with the first
+ * blocks handed out, since Hibernate starts a missing row at 1.
+ */
+@Component
+public class IdGeneratorAlignment {
+
+    // id_generators row -> table it numbers; all use allocationSize = BLOCK_SIZE
+    private static final Map<String, String> TABLES = Map.of(
+            "likes", "likes",
+            "message_reactions", "message_reactions");
+
+    static final int BLOCK_SIZE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Depending on it means ddl-auto has created the tables by the time align() runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void align() {
+        TABLES.forEach((name, table) -> {
+            // The pooled optimizer hands out (next_val - BLOCK_SIZE, next_val] first, so stay a block clear
+            Long floor = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + ? FROM " + table, Long.class, BLOCK_SIZE + 1);
+            if (jdbcTemplate.update("UPDATE id_generators SET next_val = ? WHERE sequence_name = ? AND next_val < ?",
+                    floor, name, floor) > 0) {
+                return;
+            }
+            try {
+                jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val) SELECT ?, ? FROM DUAL " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE sequence_name = ?)", name, floor, name);
+            } catch (DataIntegrityViolationException e) {
+                // Another node starting at the same time inserted it
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.anonymous.social.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method, or every method of a class, whose read-only transaction may be served by a read
+ * replica, see {@link ReplicaRoutingDataSource}. Read-only transactions started anywhere else,
+ * including the implicit ones Spring Data opens around repository reads, stay on the primary, so a
+ * write path that reads back what it just wrote never sees a lagging copy.
+ *
+ * Only mark reads that tolerate missing the last max-lag-ms of writes: paging back through older
+ * history, dashboards. A reconnect delta, a newest window or a response-cache loader must see every
+ * committed row, a client moves its position past whatever they return and never asks again.
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaReads {
+}
@@ -0,0 +1,172 @@
+package com.anonymous.social.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions of {@link ReplicaReads} methods to a replica, everything else to the
+ * primary. Replicas take turns; one whose replication lag is above {@code maxLagMs}, or that cannot
+ * be reached, is skipped until it catches up, and with none left reads fall back to the primary.
+ *
+ * Lag is measured with a heartbeat row: each check writes the current time to
+ * replication_heartbeat on the primary and reads it back from every replica. Must sit behind a
+ * LazyConnectionDataSourceProxy, so the connection is only picked once the transaction's read-only
+ * flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final String HEARTBEAT_DDL =
+            "CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, beat_ms BIGINT NOT NULL)";
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagMs = -1;
+        final LongAdder reads = new LongAdder();
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryFallbacks = new LongAdder();
+    // Transaction name ("pkg.Class.method") -> whether the class, or a method of that name, is @ReplicaReads
+    private final Map<String, Boolean> eligible = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLagMs) {
+        this.primary = primary;
+        this.maxLagMs = maxLagMs;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        new JdbcTemplate(primary).execute(HEARTBEAT_DDL);
+        checkReplicas();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !isEligible(TransactionSynchronizationManager.getCurrentTransactionName())) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                replica.reads.increment();
+                return replica.name;
+            }
+        }
+        primaryFallbacks.increment();
+        return PRIMARY;
+    }
+
+    private boolean isEligible(String transactionName) {
+        if (transactionName == null) return false;
+        return eligible.computeIfAbsent(transactionName, name -> {
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) return false;
+            try {
+                Class<?> type = Class.forName(name.substring(0, dot), false, getClass().getClassLoader());
+                if (type.isAnnotationPresent(ReplicaReads.class)) return true;
+                String methodName = name.substring(dot + 1);
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.getName().equals(methodName) && method.isAnnotationPresent(ReplicaReads.class)) return true;
+                }
+                return false;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${db.replica.check-interval-ms:1000}")
+    public void checkReplicas() {
+        long now = System.currentTimeMillis();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(primary);
+            if (jdbc.update("UPDATE replication_heartbeat SET beat_ms = ? WHERE id = 1", now) == 0) {
+                jdbc.update("INSERT INTO replication_heartbeat (id, beat_ms) VALUES (1, ?)", now);
+            }
+        } catch (RuntimeException e) {
+            // Without a fresh beat the replicas' lag can't be told; keep the last verdict
+            logger.warn("Replication heartbeat write failed: {}", e.getMessage());
+            return;
+        }
+
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try {
+                Long beat = new JdbcTemplate(replica.dataSource).queryForObject(
+                        "SELECT beat_ms FROM replication_heartbeat WHERE id = 1", Long.class);
+                replica.lagMs = beat != null ? Math.max(0, now - beat) : -1;
+                replica.healthy = beat != null && replica.lagMs <= maxLagMs;
+            } catch (RuntimeException e) {
+                replica.lagMs = -1;
+                replica.healthy = false;
+            }
+            if (replica.healthy && !wasHealthy) {
+                logger.info("Replica {} in rotation (lag {} ms)", replica.name, replica.lagMs);
+            } else if (!replica.healthy && wasHealthy) {
+                logger.warn("Replica {} out of rotation (lag {} ms), its reads go elsewhere", replica.name, replica.lagMs);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("healthy", replica.healthy);
+            entry.put("lagMs", replica.lagMs);
+            entry.put("reads", replica.reads.sum());
+            stats.put(replica.name, entry);
+        }
+        stats.put("primaryFallbacks", primaryFallbacks.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Object target : getResolvedDataSources().values()) {
+            if (target instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+}
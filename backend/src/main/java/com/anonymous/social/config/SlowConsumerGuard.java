@@ -0,0 +1,83 @@
+package com.anonymous.social.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one slow browser from holding up the fan-out to everyone else. Frames to a session go
+ * through a send buffer bounded by {@code chat.ws.send-time-limit-ms} (how long a single send may
+ * block) and {@code chat.ws.send-buffer-size-limit} (bytes queued behind it). A session that
+ * exceeds either is closed with SESSION_NOT_RELIABLE rather than allowed to back up the outbound
+ * channel; the client reconnects and catches up through the ?since= history delta, which avoids
+ * the silent gaps that dropping individual chat frames would leave.
+ */
+@Component
+public class SlowConsumerGuard implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerGuard.class);
+
+    @Value("${chat.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${chat.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${chat.ws.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${chat.ws.time-to-first-message-ms:60000}")
+    private int timeToFirstMessageMs;
+
+    private final LongAdder openSessions = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+
+    public void configure(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .setTimeToFirstMessage(timeToFirstMessageMs)
+                .addDecoratorFactory(this);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                openSessions.increment();
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                openSessions.decrement();
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)) {
+                    slowConsumerDisconnects.increment();
+                    logger.info("Disconnected slow WebSocket consumer {} ({})", session.getId(), session.getRemoteAddress());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openSessions", openSessions.sum());
+        stats.put("slowConsumerDisconnects", slowConsumerDisconnects.sum());
+        stats.put("sendTimeLimitMs", sendTimeLimitMs);
+        stats.put("sendBufferSizeLimit", sendBufferSizeLimit);
+        return stats;
+    }
+}
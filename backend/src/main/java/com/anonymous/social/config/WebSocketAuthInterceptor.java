@@ -1,6 +1,7 @@
 package com.anonymous.social.config;
 
 import com.anonymous.social.service.CustomUserDetailsService;
+import com.anonymous.social.service.PresenceRegistry;
 import com.anonymous.social.utils.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.Message;
@@ -37,13 +38,15 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
                 try {
-                    String username = jwtUtil.extractUsername(token);
-                    if (username != null) {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                        if (jwtUtil.isTokenValid(token, userDetails)) {
-                            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                                    userDetails, null, userDetails.getAuthorities());
-                            accessor.setUser(auth);
+                    JwtUtil.TokenClaims claims = jwtUtil.parseToken(token);
+                    if (claims.getSubject() != null) {
+                        UserDetails userDetails = userDetailsService.loadPrincipal(claims.getSubject());
+                        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                                userDetails, null, userDetails.getAuthorities());
+                        accessor.setUser(auth);
+                        // Display name for presence, so subscribes don't need a user lookup
+                        if (claims.getAnonymousName() != null && accessor.getSessionAttributes() != null) {
+                            accessor.getSessionAttributes().put(PresenceRegistry.DISPLAY_NAME_ATTRIBUTE, claims.getAnonymousName());
                         }
                     }
                 } catch (Exception e) {
@@ -0,0 +1,141 @@
+package com.anonymous.social.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executors behind the STOMP client inbound channel (frames from browsers: /app/chat sends,
+ * subscriptions) and client outbound channel (frames to browsers). Both are bounded and metered.
+ *
+ * A full queue runs the task on the submitting thread. For the inbound channel that is the socket
+ * reader of the client that is flooding, so it slows that client down rather than growing the queue.
+ * Outbound tasks only hand frames to each session's bounded send buffer (see {@link SlowConsumerGuard}),
+ * so they stay short even when a browser is slow.
+ *
+ * {@code chat.ws.executor.virtual-threads} (Java 21+) backs both pools with virtual threads.
+ */
+@Component
+public class WebSocketChannelExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketChannelExecutors.class);
+
+    @Value("${chat.ws.executor.virtual-threads:${spring.threads.virtual.enabled:false}}")
+    private boolean virtualThreads;
+
+    @Value("${chat.ws.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${chat.ws.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${chat.ws.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+
+    @Value("${chat.ws.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${chat.ws.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${chat.ws.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
+    private MeteredExecutor inbound;
+    private MeteredExecutor outbound;
+
+    @PostConstruct
+    public void init() {
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            logger.warn("Virtual threads need Java 21, running STOMP channels on platform threads");
+            virtualThreads = false;
+        }
+        inbound = new MeteredExecutor("ws-inbound-", inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+        outbound = new MeteredExecutor("ws-outbound-", outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+    }
+
+    public ThreadPoolTaskExecutor getInbound() {
+        return inbound.pool;
+    }
+
+    public ThreadPoolTaskExecutor getOutbound() {
+        return outbound.pool;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("inbound", inbound.getStats());
+        stats.put("outbound", outbound.getStats());
+        return stats;
+    }
+
+    private final class MeteredExecutor {
+        final ThreadPoolTaskExecutor pool;
+        final LongAdder completed = new LongAdder();
+        final LongAdder callerRuns = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong inFlight = new AtomicLong();
+
+        MeteredExecutor(String prefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+            TaskDecorator metering = task -> () -> {
+                long start = System.nanoTime();
+                inFlight.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    inFlight.decrementAndGet();
+                    completed.increment();
+                    busyNanos.add(elapsed);
+                    maxNanos.accumulateAndGet(elapsed, Math::max);
+                }
+            };
+            pool = new ThreadPoolTaskExecutor();
+            pool.setThreadNamePrefix(prefix);
+            if (virtualThreads) {
+                // Virtual threads are cheap, so keep the full pool instead of growing it on demand.
+                // The pool size then only caps how many frames are processed concurrently.
+                pool.setThreadFactory(new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory());
+                pool.setCorePoolSize(maxPoolSize);
+            } else {
+                pool.setCorePoolSize(corePoolSize);
+                pool.setAllowCoreThreadTimeOut(true);
+            }
+            pool.setMaxPoolSize(maxPoolSize);
+            pool.setQueueCapacity(queueCapacity);
+            pool.setTaskDecorator(metering);
+            pool.setRejectedExecutionHandler((task, executor) -> {
+                callerRuns.increment();
+                if (!executor.isShutdown()) task.run();
+            });
+            // Initialized and shut down by the broker configuration, which registers it as a bean
+        }
+
+        Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long done = completed.sum();
+            stats.put("inFlight", inFlight.get());
+            stats.put("completed", done);
+            stats.put("avgMicros", done == 0 ? 0 : busyNanos.sum() / done / 1000);
+            stats.put("maxMicros", maxNanos.get() / 1000);
+            ThreadPoolExecutor executor = pool.getThreadPoolExecutor();
+            stats.put("poolSize", executor.getPoolSize());
+            stats.put("queued", executor.getQueue().size());
+            stats.put("callerRuns", callerRuns.sum());
+            return stats;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.anonymous.social.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -13,14 +15,80 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @org.springframework.beans.factory.annotation.Autowired
     private WebSocketAuthInterceptor authInterceptor;
 
+    // Only present in chat.broker.mode=bus
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    private ClusterFanoutInterceptor clusterFanoutInterceptor;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${chat.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private WebSocketChannelExecutors channelExecutors;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private SlowConsumerGuard slowConsumerGuard;
+
+    // With several outbound threads, frames for one session could otherwise overtake each other
+    @Value("${chat.ws.preserve-publish-order:true}")
+    private boolean preservePublishOrder;
+
     @Override
     public void configureClientInboundChannel(org.springframework.messaging.simp.config.ChannelRegistration registration) {
         registration.interceptors(authInterceptor);
+        registration.taskExecutor(channelExecutors.getInbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(org.springframework.messaging.simp.config.ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutors.getOutbound());
+    }
+
+    @Override
+    public void configureWebSocketTransport(org.springframework.web.socket.config.annotation.WebSocketTransportRegistration registration) {
+        slowConsumerGuard.configure(registration);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        switch (brokerMode) {
+            case "relay" -> {
+                // External STOMP broker shared by all nodes; user destinations and the user
+                // registry are broadcast through it so /user/** reaches sessions on any node.
+                StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                        .setRelayHost(relayHost)
+                        .setRelayPort(relayPort)
+                        .setClientLogin(relayLogin)
+                        .setClientPasscode(relayPasscode)
+                        .setSystemLogin(relayLogin)
+                        .setSystemPasscode(relayPasscode)
+                        .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                        .setUserRegistryBroadcast("/topic/simp-user-registry");
+                if (!relayVirtualHost.isEmpty()) {
+                    relay.setVirtualHost(relayVirtualHost);
+                }
+            }
+            case "simple", "bus" -> config.enableSimpleBroker("/topic", "/queue");
+            default -> throw new IllegalArgumentException("Unknown chat.broker.mode: " + brokerMode + " (use simple, bus or relay)");
+        }
+        config.setPreservePublishOrder(preservePublishOrder);
+        if (clusterFanoutInterceptor != null) {
+            config.configureBrokerChannel().interceptors(clusterFanoutInterceptor);
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
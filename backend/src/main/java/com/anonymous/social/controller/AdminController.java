@@ -21,6 +21,7 @@ import com.anonymous.social.service.PostService;
 @RestController
 @RequestMapping("/api/shadow")
 @CrossOrigin(origins = "http://localhost:5173")
+@com.anonymous.social.config.ReplicaReads // the read-only dashboards below may be served by a replica
 public class AdminController {
 
     @Autowired
@@ -38,6 +39,36 @@ public class AdminController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private com.anonymous.social.service.CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private com.anonymous.social.service.PostRankingService postRankingService;
+
+    @Autowired
+    private com.anonymous.social.service.ResponseCacheService responseCacheService;
+
+    @Autowired
+    private com.anonymous.social.config.WebSocketChannelExecutors channelExecutors;
+
+    @Autowired
+    private com.anonymous.social.config.SlowConsumerGuard slowConsumerGuard;
+
+    @Autowired
+    private com.anonymous.social.service.EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private com.anonymous.social.service.MessageExpiryService messageExpiryService;
+
+    @Autowired
+    private com.anonymous.social.service.ChatWriteBehindService chatWriteBehindService;
+
+    @Autowired(required = false) // only with db.replica.enabled=true
+    private com.anonymous.social.config.ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private javax.sql.DataSource dataSource;
+
     // Middleware check helper (in a real app, use Spring Security filter)
     private boolean isAdmin(String token) {
         try {
@@ -49,6 +80,7 @@ public class AdminController {
     }
 
     @GetMapping("/stats")
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getStats(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) {
             System.out.println("Admin Access Denied for token");
@@ -72,6 +104,7 @@ public class AdminController {
     }
 
     @GetMapping("/users")
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getAllUsers(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
         List<User> users = userRepository.findAll();
@@ -82,11 +115,15 @@ public class AdminController {
     @DeleteMapping("/users/{id}")
     public ResponseEntity<?> deleteUser(@RequestHeader("Authorization") String token, @PathVariable Long id) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
+        String email = userRepository.findById(id).map(User::getEmail).orElse(null);
         userRepository.deleteById(id);
+        // Only once the delete has committed, so a concurrent request cannot cache the user again
+        userDetailsService.evict(email);
         return ResponseEntity.ok("User deleted");
     }
 
     @GetMapping("/groups")
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getAllGroups(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
         return ResponseEntity.ok(groupRepository.findAll());
@@ -106,6 +143,7 @@ public class AdminController {
             com.anonymous.social.model.SocialGroup group = groupRepository.findById(id).orElse(null);
             if (group != null) {
                 groupRepository.delete(group); // This triggers cascading delete of messages (and their reactions) and members
+                responseCacheService.invalidate(com.anonymous.social.service.ResponseCacheService.GROUPS);
             }
 
             return ResponseEntity.ok("Group deleted");
@@ -123,6 +161,7 @@ public class AdminController {
             User user = authService.getUserFromToken(token);
             user.setRole("ADMIN");
             userRepository.save(user); // Save first
+            userDetailsService.evict(user.getEmail());
 
             // Generate new token with updated role
             Map<String, Object> response = authService.generateFreshToken(user);
@@ -145,6 +184,7 @@ public class AdminController {
             if (user != null) {
                 user.setRole("ADMIN");
                 userRepository.save(user);
+                userDetailsService.evict(user.getEmail());
                 System.out.println("Override Success for user: " + email);
                 return ResponseEntity.ok("Override Accepted. Access Granted.");
             }
@@ -163,6 +203,9 @@ public class AdminController {
     @Autowired
     private com.anonymous.social.service.WordFilterService wordFilterService;
 
+    @Autowired
+    private com.anonymous.social.service.ChatQueryService chatQueryService;
+
     @GetMapping("/banned-words")
     public ResponseEntity<?> getBannedWords(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
@@ -203,31 +246,31 @@ public class AdminController {
     }
 
     @GetMapping("/messages")
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getMessages(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
 
-        // 1. Fetch Top 100 Messages
-        List<com.anonymous.social.model.GroupChatMessage> chatMessages = messageRepository.findTop100ByOrderByCreatedAtDesc();
+        // 1. Fetch Top 100 Messages (flat projection: one query, no entity graph)
+        List<Object[]> chatMessages = messageRepository.findRecentSummaries(org.springframework.data.domain.PageRequest.of(0, 100));
 
         // 2. Fetch Top 100 Posts
-        List<com.anonymous.social.model.Post> posts = postRepository.findAllByOrderByCreatedAtDesc();
-        if (posts.size() > 100) posts = posts.subList(0, 100);
+        List<com.anonymous.social.model.Post> posts = postRepository.findTop100ByOrderByCreatedAtDesc();
 
         // 3. Unify them
         List<Map<String, Object>> unifiedList = new java.util.ArrayList<>();
 
-        for (com.anonymous.social.model.GroupChatMessage msg : chatMessages) {
+        for (Object[] msg : chatMessages) {
             Map<String, Object> item = new HashMap<>();
-            item.put("id", msg.getId());
+            item.put("id", msg[0]);
             item.put("type", "CHAT");
-            item.put("message", msg.getMessage());
-            item.put("createdAt", msg.getCreatedAt());
-            item.put("source", "Group: " + (msg.getGroup() != null ? msg.getGroup().getName() : "Unknown"));
+            item.put("message", msg[1]);
+            item.put("createdAt", msg[2]);
+            item.put("source", "Group: " + (msg[3] != null ? msg[3] : "Unknown"));
 
             // Flatten User for Frontend convenience
             Map<String, Object> userMap = new HashMap<>();
-            userMap.put("anonymousName", msg.getUser().getAnonymousName());
-            userMap.put("avatarColor", msg.getUser().getAvatarColor());
+            userMap.put("anonymousName", msg[4]);
+            userMap.put("avatarColor", msg[5]);
             item.put("user", userMap);
 
             unifiedList.add(item);
@@ -242,7 +285,7 @@ public class AdminController {
             item.put("source", "Global Feed");
 
             // Calculate like count (Fake overrides real)
-            int likeCount = post.getLikes() != null ? post.getLikes().size() : 0;
+            int likeCount = post.getLikeCount();
             if (post.getFakeLikeCount() != null) {
                 likeCount = post.getFakeLikeCount();
             }
@@ -280,6 +323,9 @@ public class AdminController {
         if ("POST".equalsIgnoreCase(type)) {
             reportRepository.deleteByReportedPostId(id);
             postRepository.deleteById(id);
+            postRankingService.onPostDeleted(id);
+            responseCacheService.invalidate(com.anonymous.social.service.ResponseCacheService.POSTS);
+            responseCacheService.invalidate(com.anonymous.social.service.ResponseCacheService.TOP_POSTS);
             return ResponseEntity.ok("Post deleted");
         } else {
             reportRepository.deleteByReportedMessageId(id);
@@ -367,18 +413,48 @@ public class AdminController {
         health.put("memoryUsed", (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
         health.put("memoryTotal", runtime.totalMemory() / (1024 * 1024) + " MB");
         health.put("activeThreads", Thread.activeCount());
+        health.put("principalCache", userDetailsService.getPrincipalCacheStats());
+        health.put("responseCaches", responseCacheService.getStats());
+        health.put("webSocketChannels", channelExecutors.getStats());
+        health.put("webSocketSessions", slowConsumerGuard.getStats());
+        health.put("emailOutbox", emailOutboxService.getStats());
+        health.put("messageExpiry", messageExpiryService.getStats());
+        health.put("chatWriteBehind", chatWriteBehindService.getStats());
+        if (replicaRoutingDataSource != null) health.put("readReplicas", replicaRoutingDataSource.getStats());
+        health.put("connectionPools", getConnectionPoolStats());
 
         return ResponseEntity.ok(health);
     }
+
+    // Live gauges of every Hikari pool: the primary, plus the replicas when routing is enabled
+    private Map<String, Object> getConnectionPoolStats() {
+        java.util.Collection<?> pools = replicaRoutingDataSource != null
+                ? replicaRoutingDataSource.getResolvedDataSources().values()
+                : List.of(dataSource);
+        Map<String, Object> stats = new java.util.LinkedHashMap<>();
+        for (Object pool : pools) {
+            if (!(pool instanceof com.zaxxer.hikari.HikariDataSource hikari) || hikari.getHikariPoolMXBean() == null) continue;
+            com.zaxxer.hikari.HikariPoolMXBean gauges = hikari.getHikariPoolMXBean();
+            Map<String, Object> entry = new java.util.LinkedHashMap<>();
+            entry.put("active", gauges.getActiveConnections());
+            entry.put("idle", gauges.getIdleConnections());
+            entry.put("total", gauges.getTotalConnections());
+            entry.put("max", hikari.getMaximumPoolSize());
+            entry.put("waiting", gauges.getThreadsAwaitingConnection());
+            stats.put(hikari.getPoolName(), entry);
+        }
+        return stats;
+    }
     @GetMapping("/users/{id}/messages")
     public ResponseEntity<?> getUserMessages(@RequestHeader("Authorization") String token, @PathVariable Long id) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
-        return ResponseEntity.ok(messageRepository.findByUserIdOrderByCreatedAtDesc(id));
+        return ResponseEntity.ok(chatQueryService.getUserMessages(id));
     }
     @Autowired
     private com.anonymous.social.repository.ReportRepository reportRepository;
 
     @GetMapping("/reports")
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public ResponseEntity<?> getReports(@RequestHeader("Authorization") String token) {
         if (!isAdmin(token)) return ResponseEntity.status(403).body("Access Denied");
 
@@ -424,6 +500,9 @@ public class AdminController {
         }
 
         postRepository.save(post);
+        responseCacheService.invalidate(com.anonymous.social.service.ResponseCacheService.POSTS);
+        responseCacheService.invalidate(com.anonymous.social.service.ResponseCacheService.TOP_POSTS);
+        postRankingService.onScoreSet(id, post.getFakeLikeCount() != null ? post.getFakeLikeCount() : post.getLikeCount());
         return ResponseEntity.ok("Stats updated");
     }
 }
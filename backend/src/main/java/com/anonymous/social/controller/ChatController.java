@@ -1,16 +1,22 @@
 package com.anonymous.social.controller;
 
-import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.service.ChatQueryService;
 import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.ChatWriteBehindService;
+import com.anonymous.social.service.PresenceRegistry;
+import com.anonymous.social.service.TypingAggregator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.security.Principal;
@@ -23,20 +29,45 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
-    // HTTP Endpoint to load history
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    // Edits, votes and reactions need the row; with write-behind it may still be on its way
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+
+    // HTTP Endpoint to load history. Defaults to the newest window; ?before=/&after= page by message id,
+    // ?since= returns the delta a reconnecting client missed.
     @GetMapping("/api/groups/{groupId}/messages")
-    public ResponseEntity<List<GroupChatMessage>> getMessages(@PathVariable Long groupId, Principal principal) {
+    public ResponseEntity<?> getMessages(@PathVariable Long groupId,
+                                         @RequestParam(required = false) Long before,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Long since,
+                                         @RequestParam(required = false) Integer limit,
+                                         Principal principal) {
         // Since we are "Anonymous", principal might be the token/email.
         // If strict security, use Principal.
         String email = principal != null ? principal.getName() : "anonymous"; // Fallback? Or require auth
         // In this implementation, we mostly use JWT filter which sets Principal
-        return ResponseEntity.ok(chatService.getGroupMessagesForUser(groupId, email));
+        if (since != null) {
+            return ResponseEntity.ok(chatQueryService.getGroupMessagesSince(groupId, email, since));
+        }
+        if (before != null && after == null) {
+            return ResponseEntity.ok(chatQueryService.getOlderGroupMessages(groupId, email, before, limit));
+        }
+        return ResponseEntity.ok(chatQueryService.getGroupMessagesForUser(groupId, email, before, after, limit));
     }
 
     // WebSocket Endpoint: /app/chat/{groupId}
     @MessageMapping("/chat/{groupId}")
     @SendTo("/topic/group/{groupId}")
-    public GroupChatMessage sendMessage(@DestinationVariable Long groupId,
+    public ChatMessageView sendMessage(@DestinationVariable Long groupId,
                                         @Payload Map<String, Object> payload, // Changed to Object to support Lists/Ints
                                         Principal principal) {
         String email = principal != null ? principal.getName() : (String) payload.get("email");
@@ -61,48 +92,54 @@ public class ChatController {
 
     @MessageMapping("/chat/{groupId}/edit")
     @SendTo("/topic/group/{groupId}/update") // Clients listen here for edits/votes
-    public GroupChatMessage editMessage(@DestinationVariable Long groupId,
+    public ChatMessageView editMessage(@DestinationVariable Long groupId,
                                         @Payload Map<String, String> payload,
                                         Principal principal) {
         String email = principal != null ? principal.getName() : payload.get("email");
         Long messageId = Long.valueOf(payload.get("messageId"));
         String newContent = payload.get("newContent");
+        chatWriteBehindService.awaitPersisted(messageId);
 
         return chatService.editMessage(messageId, email, newContent);
     }
 
     @MessageMapping("/chat/{groupId}/vote")
     @SendTo("/topic/group/{groupId}/update")
-    public GroupChatMessage votePoll(@DestinationVariable Long groupId,
+    public ChatMessageView votePoll(@DestinationVariable Long groupId,
                                      @Payload Map<String, Object> payload,
                                      Principal principal) {
         String email = principal != null ? principal.getName() : (String) payload.get("email");
         Long messageId = Long.valueOf(payload.get("messageId").toString());
         int optionIndex = Integer.parseInt(payload.get("optionIndex").toString());
+        chatWriteBehindService.awaitPersisted(messageId);
 
         return chatService.votePoll(messageId, email, optionIndex);
     }
 
-    // Typing Status Endpoint
+    // Typing Status Endpoint: aggregated per room and broadcast on a tick, see TypingAggregator
     @MessageMapping("/chat/{groupId}/typing")
-    @SendTo("/topic/group/{groupId}/typing")
-    public Map<String, String> typingStatus(@DestinationVariable Long groupId,
-                                            @Payload Map<String, String> payload,
-                                            Principal principal) {
-        String email = principal != null ? principal.getName() : payload.get("email");
-        String isTyping = payload.get("isTyping"); // "true" or "false"
-        String anonymousName = payload.get("anonymousName"); // Pass this from frontend for UI
-
-        return Map.of(
-            "email", email != null ? email : "unknown",
-            "isTyping", isTyping,
-            "anonymousName", anonymousName != null ? anonymousName : "Someone"
-        );
+    public void typingStatus(@DestinationVariable Long groupId,
+                             @Payload Map<String, String> payload,
+                             org.springframework.messaging.simp.SimpMessageHeaderAccessor headerAccessor,
+                             Principal principal) {
+        String userKey = principal != null ? principal.getName() : headerAccessor.getSessionId();
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        Object displayName = attributes != null ? attributes.get(PresenceRegistry.DISPLAY_NAME_ATTRIBUTE) : null;
+        if (displayName == null) displayName = payload.getOrDefault("anonymousName", "Someone");
+
+        typingAggregator.onTyping(groupId, userKey, displayName.toString(), "true".equals(payload.get("isTyping")));
+    }
+
+    // Presence snapshot, answered on the subscriber's own socket: the /active deltas it continues
+    // from are per node, so it has to come from the node the client is connected to
+    @SubscribeMapping("/group/{groupId}/presence")
+    public Map<String, Object> presenceSnapshot(@DestinationVariable Long groupId) {
+        return presenceRegistry.snapshot(groupId);
     }
 
     @MessageMapping("/chat/{groupId}/react")
     @SendTo("/topic/group/{groupId}/react")
-    public GroupChatMessage reactToMessage(@DestinationVariable Long groupId,
+    public ChatMessageView reactToMessage(@DestinationVariable Long groupId,
                                            @Payload Map<String, String> payload,
                                            Principal principal) {
         String email = principal != null ? principal.getName() : payload.get("email");
@@ -110,6 +147,7 @@ public class ChatController {
 
         Long messageId = Long.valueOf(payload.get("messageId"));
         String emoji = payload.get("emoji");
+        chatWriteBehindService.awaitPersisted(messageId);
 
         return chatService.addReaction(messageId, email, emoji);
     }
@@ -2,6 +2,8 @@ package com.anonymous.social.controller;
 
 import com.anonymous.social.model.SocialGroup;
 import com.anonymous.social.service.GroupService;
+import com.anonymous.social.service.PresenceRegistry;
+import com.anonymous.social.service.ResponseCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,9 +20,16 @@ public class GroupController {
     @Autowired
     private GroupService groupService;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
     @GetMapping
-    public List<SocialGroup> getPublicGroups() {
-        return groupService.getAllPublicGroups();
+    public ResponseEntity<byte[]> getPublicGroups(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return responseCacheService.respond(ResponseCacheService.GROUPS, "public", ifNoneMatch,
+                () -> groupService.getAllPublicGroups());
     }
 
     @PostMapping
@@ -53,4 +62,21 @@ public class GroupController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    // Who is in the room now, plus the presence version the /active deltas continue from. Versions are
+    // per node, so with several nodes clients subscribe to /app/group/{id}/presence instead.
+    @GetMapping("/{id}/presence")
+    public Map<String, Object> getPresence(@PathVariable Long id) {
+        return presenceRegistry.snapshot(id);
+    }
+
+    // Online counts for a list of rooms, e.g. /api/groups/presence?ids=1,2,3
+    @GetMapping("/presence")
+    public Map<Long, Integer> getPresenceCounts(@RequestParam List<Long> ids) {
+        Map<Long, Integer> counts = new java.util.LinkedHashMap<>();
+        for (Long id : ids) {
+            counts.put(id, presenceRegistry.getCount(id));
+        }
+        return counts;
+    }
 }
@@ -1,23 +1,34 @@
 package com.anonymous.social.controller;
 
-import com.anonymous.social.model.Hashtag;
-import com.anonymous.social.repository.HashtagRepository;
+import com.anonymous.social.service.ResponseCacheService;
+import com.anonymous.social.service.TrendingHashtagService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/hashtags")
 public class HashtagController {
 
     @Autowired
-    private HashtagRepository hashtagRepository;
+    private TrendingHashtagService trendingHashtagService;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
 
     @GetMapping("/trending")
-    public List<Hashtag> getTrending() {
-        return hashtagRepository.findTop10ByOrderByUsageCountDesc();
+    public ResponseEntity<?> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        try {
+            TrendingHashtagService.Window.fromKey(window); // reject unknown windows before they become cache keys
+            return responseCacheService.respond(ResponseCacheService.TRENDING, window, ifNoneMatch,
+                    () -> trendingHashtagService.getTrending(window));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
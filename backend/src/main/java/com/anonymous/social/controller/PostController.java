@@ -1,7 +1,9 @@
 package com.anonymous.social.controller;
 
 import com.anonymous.social.model.Post;
+import com.anonymous.social.service.FeedQueryService;
 import com.anonymous.social.service.PostService;
+import com.anonymous.social.service.ResponseCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -23,15 +25,55 @@ public class PostController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private FeedQueryService feedQueryService;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    private static final java.util.Set<String> TIME_RANGES = java.util.Set.of("today", "3days", "week", "month");
+
+    // Deprecated: the newest feed.legacy.max-posts posts only. Page with /feed instead.
+    @Deprecated
     @GetMapping
-    public List<Post> getAllPosts(@RequestParam(required = false) String timeRange) {
+    public ResponseEntity<byte[]> getAllPosts(@RequestParam(required = false) String timeRange,
+                                              @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         logger.info("Request received to get all posts with filter: {}", timeRange);
-        return postService.getAllPosts(timeRange);
+        // Unknown ranges mean "all", so they share its cache entry
+        String key = timeRange != null && TIME_RANGES.contains(timeRange) ? timeRange : "all";
+        return responseCacheService.respond(ResponseCacheService.POSTS, key, ifNoneMatch,
+                () -> feedQueryService.getAllPosts(timeRange));
+    }
+
+    @GetMapping("/feed")
+    public ResponseEntity<?> getFeed(@RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String timeRange) {
+        try {
+            if (cursor != null && !cursor.isBlank()) {
+                return ResponseEntity.ok(feedQueryService.getOlderFeedPage(cursor, limit, timeRange));
+            }
+            return ResponseEntity.ok(feedQueryService.getFeedPage(cursor, limit, timeRange));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/broadcasts")
+    public ResponseEntity<?> getBroadcasts(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(feedQueryService.getBroadcasts(limit));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getPost(@PathVariable Long id) {
+        Post post = feedQueryService.getPost(id);
+        return post != null ? ResponseEntity.ok(post) : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/top")
-    public List<Post> getTopLikedPosts() {
-        return postService.getTopLikedPosts(5);
+    public ResponseEntity<byte[]> getTopLikedPosts(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return responseCacheService.respond(ResponseCacheService.TOP_POSTS, "top5", ifNoneMatch,
+                () -> feedQueryService.getTopLikedPosts(5));
     }
 
     @PostMapping
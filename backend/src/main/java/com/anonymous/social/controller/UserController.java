@@ -1,7 +1,7 @@
 package com.anonymous.social.controller;
 
 import com.anonymous.social.model.User;
-import com.anonymous.social.service.PostService;
+import com.anonymous.social.service.FeedQueryService;
 import com.anonymous.social.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -20,7 +20,7 @@ public class UserController {
     private UserService userService;
 
     @Autowired
-    private PostService postService;
+    private FeedQueryService feedQueryService;
 
     @GetMapping("/{username}")
     public ResponseEntity<?> getUserProfile(@PathVariable String username, @AuthenticationPrincipal UserDetails userDetails) {
@@ -39,8 +39,8 @@ public class UserController {
             response.put("avatarColor", user.getAvatarColor());
             response.put("createdAt", user.getCreatedAt());
             response.put("role", user.getRole());
-            response.put("followersCount", user.getFollowers().size());
-            response.put("followingCount", user.getFollowing().size());
+            response.put("followersCount", userService.getFollowersCount(user.getId()));
+            response.put("followingCount", userService.getFollowingCount(user.getId()));
             response.put("isFollowing", isFollowing);
 
             return ResponseEntity.ok(response);
@@ -71,6 +71,6 @@ public class UserController {
 
     @GetMapping("/{username}/posts")
     public ResponseEntity<?> getUserPosts(@PathVariable String username) {
-        return ResponseEntity.ok(postService.getPostsByUser(username));
+        return ResponseEntity.ok(feedQueryService.getPostsByUser(username));
     }
 }
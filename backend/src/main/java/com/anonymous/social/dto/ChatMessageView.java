@@ -0,0 +1,123 @@
+package com.anonymous.social.dto;
+
+import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.model.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model sent to chat clients. Carries only what the UI renders: the author's alias and colour,
+ * a one-level reply preview and pre-aggregated reaction and poll counts, so serializing a message
+ * never walks back into the entity graph.
+ */
+public class ChatMessageView {
+
+    public static final String EXPIRED_TEXT = "👻 [Message Expired]";
+
+    private final Long id;
+    private final Long groupId;
+    private final Author user;
+    private final String message;
+    private final GroupChatMessage.MessageType type;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime expiresAt;
+    private final boolean expired;
+    private final boolean edited;
+    private final ReplyPreview replyTo;
+    private final Map<String, Long> reactionCounts;
+    private final String pollQuestion;
+    private final List<String> pollOptions;
+    private final List<Long> pollTallies;
+
+    public ChatMessageView(GroupChatMessage message, boolean redactExpired,
+                           Map<String, Long> reactionCounts, List<String> pollOptions, List<Long> pollTallies) {
+        boolean redacted = redactExpired && message.isExpired();
+        this.id = message.getId();
+        this.groupId = message.getGroup().getId(); // answered by the proxy, no fetch
+        this.user = Author.of(message.getUser());
+        this.message = redacted ? EXPIRED_TEXT : message.getMessage();
+        this.type = message.getType();
+        this.createdAt = message.getCreatedAt();
+        this.expiresAt = message.getExpiresAt();
+        this.expired = message.isExpired();
+        this.edited = message.isEdited();
+        this.replyTo = message.getReplyTo() != null ? ReplyPreview.of(message.getReplyTo(), redactExpired) : null;
+        this.reactionCounts = reactionCounts;
+        this.pollQuestion = message.getPollQuestion();
+        this.pollOptions = pollOptions;
+        this.pollTallies = pollTallies;
+    }
+
+    public Long getId() { return id; }
+    public Long getGroupId() { return groupId; }
+    public Author getUser() { return user; }
+    public String getMessage() { return message; }
+    public GroupChatMessage.MessageType getType() { return type; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public boolean isExpired() { return expired; }
+
+    @JsonProperty("isEdited")
+    public boolean isEdited() { return edited; }
+
+    public ReplyPreview getReplyTo() { return replyTo; }
+    public Map<String, Long> getReactionCounts() { return reactionCounts; }
+    public String getPollQuestion() { return pollQuestion; }
+    public List<String> getPollOptions() { return pollOptions; }
+    public List<Long> getPollTallies() { return pollTallies; }
+
+    public long getTotalVotes() {
+        return pollTallies.stream().mapToLong(Long::longValue).sum();
+    }
+
+    public static class Author {
+        private final String email;
+        private final String anonymousName;
+        private final String avatarColor;
+
+        private Author(String email, String anonymousName, String avatarColor) {
+            this.email = email;
+            this.anonymousName = anonymousName;
+            this.avatarColor = avatarColor;
+        }
+
+        static Author of(User user) {
+            return new Author(user.getEmail(), user.getAnonymousName(), user.getAvatarColor());
+        }
+
+        public String getEmail() { return email; }
+        public String getAnonymousName() { return anonymousName; }
+        public String getAvatarColor() { return avatarColor; }
+    }
+
+    public static class ReplyPreview {
+        private final Long id;
+        private final String message;
+        private final GroupChatMessage.MessageType type;
+        private final String pollQuestion;
+        private final String anonymousName;
+
+        private ReplyPreview(Long id, String message, GroupChatMessage.MessageType type, String pollQuestion, String anonymousName) {
+            this.id = id;
+            this.message = message;
+            this.type = type;
+            this.pollQuestion = pollQuestion;
+            this.anonymousName = anonymousName;
+        }
+
+        static ReplyPreview of(GroupChatMessage reply, boolean redactExpired) {
+            boolean redacted = redactExpired && reply.isExpired();
+            return new ReplyPreview(reply.getId(), redacted ? EXPIRED_TEXT : reply.getMessage(), reply.getType(),
+                    reply.getPollQuestion(), reply.getUser().getAnonymousName());
+        }
+
+        public Long getId() { return id; }
+        public String getMessage() { return message; }
+        public GroupChatMessage.MessageType getType() { return type; }
+        public String getPollQuestion() { return pollQuestion; }
+        public String getAnonymousName() { return anonymousName; }
+    }
+}
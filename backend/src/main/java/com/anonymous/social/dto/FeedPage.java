@@ -0,0 +1,21 @@
+package com.anonymous.social.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated feed. {@code nextCursor} is null once the end of the feed is reached.
+ */
+public class FeedPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public FeedPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return nextCursor != null; }
+}
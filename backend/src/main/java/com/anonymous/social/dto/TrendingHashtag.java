@@ -0,0 +1,22 @@
+package com.anonymous.social.dto;
+
+/**
+ * One entry of a trending list: the tag, how often it was used inside the window, and the
+ * time-decayed score the list is ordered by.
+ */
+public class TrendingHashtag {
+
+    private final String name;
+    private final long count;
+    private final double score;
+
+    public TrendingHashtag(String name, long count, double score) {
+        this.name = name;
+        this.count = count;
+        this.score = score;
+    }
+
+    public String getName() { return name; }
+    public long getCount() { return count; }
+    public double getScore() { return score; }
+}
@@ -2,32 +2,32 @@ package com.anonymous.social.listener;
 
 import com.anonymous.social.model.User;
 import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.PresenceRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import java.security.Principal;
-import java.util.*;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class WebSocketEventListener {
 
-    @Autowired
-    private SimpMessageSendingOperations messagingTemplate;
+    private static final String GROUP_TOPIC = "/topic/group/";
 
     @Autowired
     private UserRepository userRepository;
 
-    // Map<GroupId, Set<Username>>
-    private final Map<Long, Set<String>> groupActiveUsers = new ConcurrentHashMap<>();
+    @Autowired
+    private PresenceRegistry presenceRegistry;
 
-    // Map<SessionId, Set<Long>>
-    private final Map<String, Set<Long>> sessionGroups = new ConcurrentHashMap<>();
+    // Map<SessionId, Map<SubscriptionId, GroupId>>, to resolve unsubscribes (which carry no destination)
+    private final Map<String, Map<String, Long>> sessionSubscriptions = new ConcurrentHashMap<>();
 
     @EventListener
     public void handleSessionSubscribeEvent(SessionSubscribeEvent event) {
@@ -36,60 +36,44 @@ public class WebSocketEventListener {
         Principal userPrincipal = headerAccessor.getUser();
         String sessionId = headerAccessor.getSessionId();
 
-        if (destination != null && destination.startsWith("/topic/group/") && !destination.endsWith("/active") && !destination.endsWith("/react") && !destination.endsWith("/typing") && userPrincipal != null) {
-            String groupIdStr = destination.replace("/topic/group/", "");
-            try {
-                Long groupId = Long.parseLong(groupIdStr);
-                String email = userPrincipal.getName(); // Email is username
-
-                // Get Anonymous Name
-                Optional<User> userOpt = userRepository.findByEmail(email);
-                String displayName = userOpt.map(User::getAnonymousName).orElse("Ghost");
-
-                groupActiveUsers.computeIfAbsent(groupId, k -> ConcurrentHashMap.newKeySet()).add(displayName);
-                sessionGroups.computeIfAbsent(sessionId, k -> new HashSet<>()).add(groupId);
+        // Only the room itself (/topic/group/{id}), not its /active, /react, /typing or /update sub-topics
+        if (destination == null || !destination.startsWith(GROUP_TOPIC) || userPrincipal == null) return;
+        Long groupId;
+        try {
+            groupId = Long.parseLong(destination.substring(GROUP_TOPIC.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
 
-                broadcastActiveUsers(groupId);
-            } catch (NumberFormatException e) {
-                // Ignore non-group subscriptions
-            }
+        String displayName = null;
+        if (!presenceRegistry.isKnownSession(sessionId)) {
+            // Set from the token on CONNECT; the lookup only covers tokens issued without the claim
+            Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+            Object cached = attributes != null ? attributes.get(PresenceRegistry.DISPLAY_NAME_ATTRIBUTE) : null;
+            displayName = cached != null ? cached.toString()
+                    : userRepository.findByEmail(userPrincipal.getName()).map(User::getAnonymousName).orElse("Ghost");
+        }
+        presenceRegistry.join(sessionId, displayName, groupId);
+        if (headerAccessor.getSubscriptionId() != null) {
+            sessionSubscriptions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+                    .put(headerAccessor.getSubscriptionId(), groupId);
         }
     }
 
     @EventListener
-    public void handleSessionDisconnectEvent(SessionDisconnectEvent event) {
+    public void handleSessionUnsubscribeEvent(SessionUnsubscribeEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = headerAccessor.getSessionId();
-        Principal userPrincipal = headerAccessor.getUser();
-
-        Set<Long> groups = sessionGroups.remove(sessionId);
-        if (groups != null && userPrincipal != null) {
-            String email = userPrincipal.getName();
-            Optional<User> userOpt = userRepository.findByEmail(email);
-            String displayName = userOpt.map(User::getAnonymousName).orElse("Ghost");
-
-            for (Long groupId : groups) {
-                Set<String> users = groupActiveUsers.get(groupId);
-                if (users != null) {
-                    users.remove(displayName);
-                    if (users.isEmpty()) {
-                        groupActiveUsers.remove(groupId);
-                        messagingTemplate.convertAndSend("/topic/group/" + groupId + "/active", Collections.emptySet());
-                    } else {
-                        broadcastActiveUsers(groupId);
-                    }
-                }
-            }
+        Map<String, Long> subscriptions = sessionSubscriptions.get(headerAccessor.getSessionId());
+        if (subscriptions == null || headerAccessor.getSubscriptionId() == null) return;
+        Long groupId = subscriptions.remove(headerAccessor.getSubscriptionId());
+        if (groupId != null) {
+            presenceRegistry.leave(headerAccessor.getSessionId(), groupId);
         }
     }
 
-    // Better approach for tracking Active Users in a Chat Room:
-    // When a user subscribes, we add them.
-    // BUT we need to remove them on disconnect.
-    // Let's create a SessionGroupRegistry.
-
-    private void broadcastActiveUsers(Long groupId) {
-        Set<String> users = groupActiveUsers.getOrDefault(groupId, Collections.emptySet());
-        messagingTemplate.convertAndSend("/topic/group/" + groupId + "/active", users);
+    @EventListener
+    public void handleSessionDisconnectEvent(SessionDisconnectEvent event) {
+        sessionSubscriptions.remove(event.getSessionId());
+        presenceRegistry.disconnect(event.getSessionId());
     }
 }
@@ -6,17 +6,24 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "group_chat_messages")
+@Table(name = "group_chat_messages", indexes = {
+    @Index(name = "idx_chat_group_id_id", columnList = "group_id, id"),
+    @Index(name = "idx_chat_expiry", columnList = "expired, expires_at")
+})
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class GroupChatMessage {
 
+    // Stays database-assigned: history paging and ?since= deltas rely on ids following send order,
+    // which pooled id blocks handed to several nodes would not
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "group_id", nullable = false)
-    @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "messages"})
+    // Clients already know the room; serialize just its id, which an uninitialized proxy can answer
+    @com.fasterxml.jackson.annotation.JsonIdentityInfo(generator = com.fasterxml.jackson.annotation.ObjectIdGenerators.PropertyGenerator.class, property = "id")
+    @com.fasterxml.jackson.annotation.JsonIdentityReference(alwaysAsId = true)
     private SocialGroup group;
 
     @ManyToOne
@@ -31,12 +38,12 @@ public class GroupChatMessage {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reply_to_id")
     @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"replyTo", "group"}) // Prevent deep recursion
     private GroupChatMessage replyTo;
 
-    @OneToMany(mappedBy = "message", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "message", cascade = CascadeType.ALL)
     @com.fasterxml.jackson.annotation.JsonIgnoreProperties("message")
     private java.util.List<MessageReaction> reactions = new java.util.ArrayList<>();
 
@@ -45,17 +52,22 @@ public class GroupChatMessage {
 
     private LocalDateTime expiresAt;
 
+    // Set by MessageExpiryService once expiresAt has passed; reads only look at this flag
+    @Column(nullable = false)
+    private boolean expired = false;
+
     private boolean isEdited = false;
 
     // Poll Fields
     private String pollQuestion;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @org.hibernate.annotations.BatchSize(size = 100) // one query per page of polls, not one per poll
     @CollectionTable(name = "poll_options", joinColumns = @JoinColumn(name = "message_id"))
     @Column(name = "option_text")
     private java.util.List<String> pollOptions = new java.util.ArrayList<>();
 
-    @OneToMany(mappedBy = "message", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "message", cascade = CascadeType.ALL)
     @com.fasterxml.jackson.annotation.JsonIgnoreProperties("message")
     private java.util.List<PollVote> votes = new java.util.ArrayList<>();
 
@@ -92,6 +104,9 @@ public class GroupChatMessage {
     public LocalDateTime getExpiresAt() { return expiresAt; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
 
+    public boolean isExpired() { return expired; }
+    public void setExpired(boolean expired) { this.expired = expired; }
+
     public boolean isEdited() { return isEdited; }
     public void setEdited(boolean edited) { isEdited = edited; }
 
@@ -7,8 +7,11 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @Table(name = "message_reactions")
 public class MessageReaction {
 
+    // Ids come in pooled blocks from id_generators, so reaction inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "message_reactions_ids")
+    @TableGenerator(name = "message_reactions_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "message_reactions", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    @Index(name = "idx_posts_created_at_id", columnList = "created_at, id")
+})
 public class Post {
 
     @Id
@@ -69,6 +71,26 @@ public class Post {
     @Column(name = "fake_like_count")
     private Integer fakeLikeCount;
 
+    // Stored engagement counters, moved by PostService with atomic updates so nothing has to
+    // count rows in likes/comments/reposts. Rows predating the columns are backfilled at startup.
+    @Column(name = "like_count")
+    private Integer likeCount = 0;
+
+    @Column(name = "comment_count")
+    private Integer commentCount = 0;
+
+    @Column(name = "repost_count")
+    private Integer repostCount = 0;
+
+    public Integer getLikeCount() { return likeCount != null ? likeCount : 0; }
+    public void setLikeCount(Integer likeCount) { this.likeCount = likeCount; }
+
+    public Integer getCommentCount() { return commentCount != null ? commentCount : 0; }
+    public void setCommentCount(Integer commentCount) { this.commentCount = commentCount; }
+
+    public Integer getRepostCount() { return repostCount != null ? repostCount : 0; }
+    public void setRepostCount(Integer repostCount) { this.repostCount = repostCount; }
+
     public List<Repost> getReposts() { return reposts; }
     public void setReposts(List<Repost> reposts) { this.reposts = reposts; }
 
@@ -3,11 +3,16 @@ package com.anonymous.social.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "likes")
+@Table(name = "likes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_likes_post_user", columnNames = {"post_id", "user_id"})
+})
 public class PostLike {
 
+    // Ids come in pooled blocks from id_generators, so like inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "likes_ids")
+    @TableGenerator(name = "likes_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "likes", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -49,17 +49,20 @@ public class User {
     @Column(name = "verified")
     private Boolean verified = false;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // The follow graph is never walked through the entity: UserRepository answers counts and
+    // membership with indexed queries on user_follows, so loading a user stays a single-row read
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "user_follows",
         joinColumns = @JoinColumn(name = "follower_id"),
-        inverseJoinColumns = @JoinColumn(name = "following_id")
+        inverseJoinColumns = @JoinColumn(name = "following_id"),
+        indexes = @Index(name = "idx_user_follows_following", columnList = "following_id")
     )
-    @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"followers", "following", "password"})
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private java.util.Set<User> following = new java.util.HashSet<>();
 
-    @ManyToMany(mappedBy = "following", fetch = FetchType.EAGER)
-    @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"followers", "following", "password"})
+    @ManyToMany(mappedBy = "following", fetch = FetchType.LAZY)
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private java.util.Set<User> followers = new java.util.HashSet<>();
 
     public User() {}
@@ -2,7 +2,14 @@ package com.anonymous.social.repository;
 
 import com.anonymous.social.model.BannedWord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface BannedWordRepository extends JpaRepository<BannedWord, Long> {
     boolean existsByWord(String word);
+
+    // Changes whenever a word is added, removed or re-timed; lets instances detect edits without reading every row
+    @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), COALESCE(SUM(b.banDurationMinutes), 0) FROM BannedWord b")
+    List<Object[]> fingerprint();
 }
@@ -0,0 +1,60 @@
+package com.anonymous.social.repository;
+
+import com.anonymous.social.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Succeeds for exactly one caller, so a row is never sent by two workers or nodes at once
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENDING', e.nextAttemptAt = :leaseUntil " +
+           "WHERE e.id = :id AND e.status = 'PENDING' AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Rows whose sender died mid-delivery go back to the queue once the lease runs out
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'PENDING' WHERE e.status = 'SENDING' AND e.nextAttemptAt < :now")
+    int releaseExpiredLeases(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :now, e.attempts = e.attempts + 1, e.lastError = null WHERE e.id = :id")
+    int markSent(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :next, e.lastError = :error WHERE e.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") String status, @Param("attempts") int attempts,
+                          @Param("next") LocalDateTime next, @Param("error") String error);
+
+    // Sent and given-up rows carry the OTP, so they are only kept briefly; FAILED rows are stamped when given up
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE (e.status = 'SENT' AND e.sentAt < :cutoff) " +
+           "OR (e.status = 'FAILED' AND e.nextAttemptAt < :cutoff)")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // A newer code replaces older ones not yet picked up; a row already SENDING is left to finish
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.recipient = :recipient AND e.kind = :kind AND e.status = 'PENDING'")
+    int deletePendingFor(@Param("recipient") String recipient, @Param("kind") String kind);
+
+    @Query("SELECT e.status, COUNT(e) FROM EmailOutbox e GROUP BY e.status")
+    List<Object[]> countByStatus();
+}
@@ -1,19 +1,61 @@
 package com.anonymous.social.repository;
 
 import com.anonymous.social.model.GroupChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
 public interface GroupChatMessageRepository extends JpaRepository<GroupChatMessage, Long> {
-    List<GroupChatMessage> findByGroupIdOrderByCreatedAtAsc(Long groupId);
-    List<GroupChatMessage> findByUserIdOrderByCreatedAtDesc(Long userId);
-    List<GroupChatMessage> findTop100ByOrderByCreatedAtDesc();
+    // History windows walk idx_chat_group_id_id; ids are assigned in send order. Author and reply
+    // preview come back in the same row so building views needs no per-message lookups.
+    @Query("SELECT m FROM GroupChatMessage m JOIN FETCH m.user LEFT JOIN FETCH m.replyTo r LEFT JOIN FETCH r.user " +
+           "WHERE m.group.id = :groupId ORDER BY m.id DESC")
+    List<GroupChatMessage> findLatestInGroup(@Param("groupId") Long groupId, Pageable pageable);
+
+    @Query("SELECT m FROM GroupChatMessage m JOIN FETCH m.user LEFT JOIN FETCH m.replyTo r LEFT JOIN FETCH r.user " +
+           "WHERE m.group.id = :groupId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<GroupChatMessage> findInGroupBefore(@Param("groupId") Long groupId, @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query("SELECT m FROM GroupChatMessage m JOIN FETCH m.user LEFT JOIN FETCH m.replyTo r LEFT JOIN FETCH r.user " +
+           "WHERE m.group.id = :groupId AND m.id > :afterId ORDER BY m.id ASC")
+    List<GroupChatMessage> findInGroupAfter(@Param("groupId") Long groupId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT m FROM GroupChatMessage m JOIN FETCH m.user LEFT JOIN FETCH m.replyTo r LEFT JOIN FETCH r.user " +
+           "WHERE m.user.id = :userId ORDER BY m.createdAt DESC")
+    List<GroupChatMessage> findByAuthorWithReplies(@Param("userId") Long userId);
+
+    // Admin dashboard rows: id, message, createdAt, group name, author alias, author colour
+    @Query("SELECT m.id, m.message, m.createdAt, g.name, u.anonymousName, u.avatarColor " +
+           "FROM GroupChatMessage m JOIN m.group g JOIN m.user u ORDER BY m.createdAt DESC")
+    List<Object[]> findRecentSummaries(Pageable pageable);
+
+    // Expiry engine: both walk idx_chat_expiry (expired, expires_at)
+    @Query("SELECT m.id, m.expiresAt FROM GroupChatMessage m WHERE m.expired = false AND m.expiresAt <= :until ORDER BY m.expiresAt")
+    List<Object[]> findExpiringBefore(@Param("until") java.time.LocalDateTime until, Pageable pageable);
+
+    // Locks the rows still to expire, so of two nodes expiring the same message only one announces it
+    @Query(value = "SELECT id, group_id FROM group_chat_messages WHERE id IN (:ids) AND expired = false FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockUnexpired(@Param("ids") java.util.Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE GroupChatMessage m SET m.expired = true WHERE m.id IN :ids")
+    int markExpired(@Param("ids") java.util.Collection<Long> ids);
+
+    // Drops the text of messages that expired before the cutoff; the row stays so replies and reactions keep their target
+    @Transactional
+    @Modifying
+    @Query("UPDATE GroupChatMessage m SET m.message = :text, m.pollQuestion = null " +
+           "WHERE m.expired = true AND m.expiresAt < :cutoff AND m.message <> :text")
+    int purgeExpiredBefore(@Param("cutoff") java.time.LocalDateTime cutoff, @Param("text") String text);
+
     void deleteByGroupId(Long groupId);
 
     @Modifying
@@ -2,9 +2,18 @@ package com.anonymous.social.repository;
 
 import com.anonymous.social.model.MessageReaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface MessageReactionRepository extends JpaRepository<MessageReaction, Long> {
     Optional<MessageReaction> findByMessageIdAndUserId(Long messageId, Long userId);
     void deleteByMessage_Group_Id(Long groupId);
+
+    // Rows of (messageId, emoji, count)
+    @Query("SELECT r.message.id, r.emoji, COUNT(r) FROM MessageReaction r WHERE r.message.id IN :messageIds GROUP BY r.message.id, r.emoji")
+    List<Object[]> countByMessageIds(@Param("messageIds") Collection<Long> messageIds);
 }
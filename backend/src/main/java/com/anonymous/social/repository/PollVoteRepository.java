@@ -2,8 +2,17 @@ package com.anonymous.social.repository;
 
 import com.anonymous.social.model.PollVote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PollVoteRepository extends JpaRepository<PollVote, Long> {
     Optional<PollVote> findByMessageIdAndUserId(Long messageId, Long userId);
+
+    // Rows of (messageId, optionIndex, count)
+    @Query("SELECT v.message.id, v.optionIndex, COUNT(v) FROM PollVote v WHERE v.message.id IN :messageIds GROUP BY v.message.id, v.optionIndex")
+    List<Object[]> tallyByMessageIds(@Param("messageIds") Collection<Long> messageIds);
 }
@@ -1,11 +1,22 @@
 package com.anonymous.social.repository;
 
 import com.anonymous.social.model.PostLike;
-import com.anonymous.social.model.Post;
-import com.anonymous.social.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
-import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
 
 public interface PostLikeRepository extends JpaRepository<PostLike, Long> {
-    Optional<PostLike> findByPostAndUser(Post post, User user);
+    // id and reaction type only, so a like toggle never loads the post, the liker or the author
+    @Query("SELECT l.id, l.reactionType FROM PostLike l WHERE l.post.id = :postId AND l.user.id = :userId")
+    List<Object[]> findReaction(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM PostLike l WHERE l.id = :id")
+    int deleteLike(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE PostLike l SET l.reactionType = :reactionType WHERE l.id = :id")
+    int updateReactionType(@Param("id") Long id, @Param("reactionType") String reactionType);
 }
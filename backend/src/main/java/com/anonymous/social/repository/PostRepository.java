@@ -1,16 +1,77 @@
 package com.anonymous.social.repository;
 
 import com.anonymous.social.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    List<Post> findAllByOrderByCreatedAtDesc();
+    List<Post> findTop100ByOrderByCreatedAtDesc();
     List<Post> findByUser_AnonymousNameOrderByCreatedAtDesc(String anonymousName);
     long countByUser(com.anonymous.social.model.User user);
 
-    @org.springframework.data.jpa.repository.Query("SELECT p FROM Post p LEFT JOIN p.likes l GROUP BY p.id ORDER BY CASE WHEN p.fakeLikeCount IS NOT NULL THEN p.fakeLikeCount ELSE COUNT(l) END DESC")
-    List<Post> findTopLikedPosts(org.springframework.data.domain.Pageable pageable);
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.id IN :ids")
+    List<Post> findAllWithUserByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    // Content and timestamp only, newest first, for replaying recent hashtags into the trending engine
+    @Query("SELECT p.content, p.createdAt FROM Post p WHERE p.createdAt > :since ORDER BY p.createdAt DESC")
+    List<Object[]> findRecentContent(@Param("since") LocalDateTime since, Pageable pageable);
+
+    // Ranking score is the admin override when set, otherwise the stored like count
+    @Query("SELECT p.id, COALESCE(p.fakeLikeCount, p.likeCount, 0) FROM Post p " +
+           "ORDER BY COALESCE(p.fakeLikeCount, p.likeCount, 0) DESC, p.id DESC")
+    List<Object[]> findRankingCandidates(Pageable pageable);
+
+    @Query("SELECT COALESCE(p.fakeLikeCount, p.likeCount, 0) FROM Post p WHERE p.id = :postId")
+    java.util.Optional<Integer> findRankingScore(@Param("postId") Long postId);
+
+    // Keyset feed: walks idx_posts_created_at_id newest-first, never touching rows before the cursor
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.createdAt > :cutoff ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findFeedPage(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.createdAt > :cutoff " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findFeedPageBefore(@Param("cutoff") LocalDateTime cutoff,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+
+    // Admin broadcasts are posts with a marker prefix; newest first, walking the created_at index
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.content LIKE CONCAT(:prefix, '%') ORDER BY p.createdAt DESC, p.id DESC")
+    List<Post> findLatestWithPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.id = :id")
+    java.util.Optional<Post> findWithUserById(@Param("id") Long id);
+
+    // Atomic counter steps. fake_like_count stays NULL (untracked) unless an admin set it.
+    // Each returns 0 only when the post does not exist.
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("UPDATE Post p SET " +
+           "p.likeCount = CASE WHEN COALESCE(p.likeCount, 0) + :delta < 0 THEN 0 ELSE COALESCE(p.likeCount, 0) + :delta END, " +
+           "p.fakeLikeCount = CASE WHEN p.fakeLikeCount IS NULL THEN NULL " +
+           "WHEN p.fakeLikeCount + :delta < 0 THEN 0 ELSE p.fakeLikeCount + :delta END WHERE p.id = :postId")
+    int adjustLikeCounts(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("UPDATE Post p SET p.commentCount = COALESCE(p.commentCount, 0) + :delta WHERE p.id = :postId")
+    int adjustCommentCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("UPDATE Post p SET p.repostCount = COALESCE(p.repostCount, 0) + :delta WHERE p.id = :postId")
+    int adjustRepostCount(@Param("postId") Long postId, @Param("delta") int delta);
 
-    List<Post> findAllByCreatedAtAfterOrderByCreatedAtDesc(java.time.LocalDateTime date);
+    // One-off fill for rows written before the stored counters existed; no-op once every row has them
+    @org.springframework.data.jpa.repository.Modifying
+    @org.springframework.transaction.annotation.Transactional
+    @Query(value = "UPDATE posts SET " +
+           "like_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = posts.id), " +
+           "comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = posts.id), " +
+           "repost_count = (SELECT COUNT(*) FROM reposts r WHERE r.post_id = posts.id) " +
+           "WHERE like_count IS NULL OR comment_count IS NULL OR repost_count IS NULL", nativeQuery = true)
+    int backfillEngagementCounts();
 }
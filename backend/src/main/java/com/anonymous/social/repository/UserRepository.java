@@ -2,10 +2,40 @@ package com.anonymous.social.repository;
 
 import com.anonymous.social.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByAnonymousName(String anonymousName);
     boolean existsByAnonymousName(String anonymousName);
+
+    // Follow graph queries go straight to the join table; (follower_id, following_id) is the
+    // primary key and following_id has its own index, so none of these load User rows.
+    @Query(value = "SELECT COUNT(*) FROM user_follows WHERE following_id = :userId", nativeQuery = true)
+    long countFollowers(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM user_follows WHERE follower_id = :userId", nativeQuery = true)
+    long countFollowing(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COUNT(*) FROM user_follows WHERE follower_id = :followerId AND following_id = :followingId", nativeQuery = true)
+    long countFollow(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    // Idempotent: a concurrent or repeated follow hits the primary key and leaves the row as it is
+    @Modifying
+    @Query(value = "INSERT INTO user_follows (follower_id, following_id) VALUES (:followerId, :followingId) " +
+            "ON DUPLICATE KEY UPDATE follower_id = follower_id", nativeQuery = true)
+    void insertFollow(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_follows WHERE follower_id = :followerId AND following_id = :followingId", nativeQuery = true)
+    int deleteFollow(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    // Reputation moves with likes on the author's posts; resolved and applied in one statement
+    @Modifying
+    @Query("UPDATE User u SET u.reputationScore = COALESCE(u.reputationScore, 0) + :delta " +
+           "WHERE u.id = (SELECT p.user.id FROM Post p WHERE p.id = :postId)")
+    int adjustReputationOfPostAuthor(@Param("postId") Long postId, @Param("delta") int delta);
 }
@@ -8,6 +8,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Random;
 
@@ -24,11 +25,14 @@ public class AuthService {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
     private static final String[] ADJECTIVES = {
             "Cyber", "Neon", "Shadow", "Ghost", "Dark", "Rogue", "Silent", "Hidden", "Phantom", "Spectral",
             "Void", "Null", "Binary", "Digital", "Electric", "Cosmic", "Lunar", "Solar", "Stellar", "Astral",
@@ -40,6 +44,8 @@ public class AuthService {
             "Raven", "Hawk", "Eagle", "Owl", "Shark", "Whale", "Bear", "Panda", "Koala", "Sloth"
     };
 
+    // One transaction with the outbox row, so the OTP mail is only queued for a user that was saved
+    @Transactional
     public User register(String email, String password, String alias) {
         if (userRepository.findByEmail(email).isPresent()) {
             User existing = userRepository.findByEmail(email).get();
@@ -49,6 +55,9 @@ public class AuthService {
                 // Resend OTP if not verified? Or overwrite?
                 // Let's overwrite for now, treating as new signup attempt
                 userRepository.delete(existing);
+                // Hibernate flushes inserts before deletes; the new row reuses the unique email
+                userRepository.flush();
+                userDetailsService.evictAfterCommit(email);
             }
         }
 
@@ -74,7 +83,7 @@ public class AuthService {
         user.setVerified(false);
 
         User savedUser = userRepository.save(user);
-        emailService.sendOtp(email, otp);
+        emailOutboxService.sendOtp(email, otp);
 
         return savedUser;
     }
@@ -149,6 +158,7 @@ public class AuthService {
 
         user.setAnonymousName(newName);
         userRepository.save(user);
+        userDetailsService.evict(email);
 
         // Fix: Add authorities and role to JWT
         var authorities = java.util.Collections.singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + user.getRole()));
@@ -223,6 +233,7 @@ public class AuthService {
         return generateFreshToken(user);
     }
 
+    @Transactional
     public void forgotPassword(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -234,7 +245,7 @@ public class AuthService {
         user.setOtpExpiry(java.time.LocalDateTime.now().plusMinutes(10));
         userRepository.save(user);
 
-        emailService.sendOtp(email, otp);
+        emailOutboxService.sendOtp(email, otp);
     }
 
     public void resetPassword(String email, String otp, String newPassword) {
@@ -254,6 +265,7 @@ public class AuthService {
         user.setOtpExpiry(null);
         user.setVerified(true); // Auto-verify since they proved email ownership
         userRepository.save(user);
+        userDetailsService.evict(email);
     }
 
 }
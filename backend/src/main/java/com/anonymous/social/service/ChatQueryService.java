@@ -0,0 +1,185 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.config.ReplicaReads;
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.dto.FeedPage;
+import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import com.anonymous.social.repository.MessageReactionRepository;
+import com.anonymous.social.repository.PollVoteRepository;
+import com.anonymous.social.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Chat history reads. Every method runs in a read-only transaction: Hibernate loads the messages
+ * as read-only entities (no dirty-checking snapshots kept) and the session's flush mode is MANUAL,
+ * so nothing loaded here can be written back at commit. With read replicas configured only paging
+ * back through older history and the admin listing go to a replica; the newest window and the
+ * reconnect delta read the primary, a lagging copy would leave gaps no later request fills. Writes
+ * stay in {@link ChatService}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ChatQueryService {
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MessageReactionRepository reactionRepository;
+
+    @Autowired
+    private PollVoteRepository pollVoteRepository;
+
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+
+    @Value("${chat.history.page-size.default:50}")
+    private int defaultPageSize;
+
+    @Value("${chat.history.page-size.max:200}")
+    private int maxPageSize;
+
+    @Value("${chat.history.max-delta:500}")
+    private int maxDelta;
+
+    /**
+     * One window of a group's history in chronological order. With no anchor this is the newest
+     * {@code limit} messages; {@code beforeId} pages backwards and {@code afterId} pages forwards.
+     */
+    public List<ChatMessageView> getGroupMessagesForUser(Long groupId, String email, Long beforeId, Long afterId, Integer limit) {
+        int size = clampPageSize(limit);
+        Pageable window = PageRequest.of(0, size);
+        List<GroupChatMessage> inFlight = afterId != null
+                ? chatWriteBehindService.getInFlight(groupId, afterId, null)
+                : chatWriteBehindService.getInFlight(groupId, null, beforeId);
+        List<GroupChatMessage> messages;
+        if (afterId != null) {
+            messages = merge(chatMessageRepository.findInGroupAfter(groupId, afterId, window), inFlight);
+            messages = messages.subList(0, Math.min(size, messages.size()));
+        } else {
+            messages = merge(beforeId != null
+                    ? chatMessageRepository.findInGroupBefore(groupId, beforeId, window)
+                    : chatMessageRepository.findLatestInGroup(groupId, window), inFlight);
+            messages = messages.subList(Math.max(0, messages.size() - size), messages.size());
+        }
+        return toViews(messages, !isAdmin(email));
+    }
+
+    /**
+     * {@code limit} messages before {@code beforeId}, for scrolling back. Replica-eligible: anything
+     * older than the client's oldest message was committed long before the replica's lag allowance.
+     */
+    @ReplicaReads
+    public List<ChatMessageView> getOlderGroupMessages(Long groupId, String email, Long beforeId, Integer limit) {
+        return getGroupMessagesForUser(groupId, email, beforeId, null, limit);
+    }
+
+    /**
+     * Delta for a reconnecting client: everything posted after {@code sinceId}, capped at
+     * {@code chat.history.max-delta}. When capped, {@code nextCursor} is the id to resume from;
+     * clients that fall that far behind are usually better off reloading the newest window.
+     */
+    public FeedPage<ChatMessageView> getGroupMessagesSince(Long groupId, String email, Long sinceId) {
+        List<GroupChatMessage> inFlight = chatWriteBehindService.getInFlight(groupId, sinceId, null);
+        List<GroupChatMessage> messages = merge(chatMessageRepository.findInGroupAfter(
+                groupId, sinceId, PageRequest.of(0, maxDelta + 1)), inFlight);
+        String nextCursor = null;
+        if (messages.size() > maxDelta) {
+            messages = messages.subList(0, maxDelta);
+            nextCursor = String.valueOf(messages.get(maxDelta - 1).getId());
+        }
+        return new FeedPage<>(toViews(messages, !isAdmin(email)), nextCursor);
+    }
+
+    @ReplicaReads // admin dashboard
+    public List<ChatMessageView> getUserMessages(Long userId) {
+        return toViews(chatMessageRepository.findByAuthorWithReplies(userId), false);
+    }
+
+    /**
+     * Saved rows plus write-behind messages not inserted yet, ascending by id. The in-flight list is
+     * taken before the query: a message saved in between then shows up in one or both, never neither.
+     * Saved rows win, they carry edits and expiry.
+     */
+    private List<GroupChatMessage> merge(List<GroupChatMessage> saved, List<GroupChatMessage> inFlight) {
+        if (inFlight.isEmpty()) {
+            List<GroupChatMessage> sorted = new ArrayList<>(saved);
+            sorted.sort(Comparator.comparing(GroupChatMessage::getId));
+            return sorted;
+        }
+        TreeMap<Long, GroupChatMessage> byId = new TreeMap<>();
+        for (GroupChatMessage message : inFlight) byId.put(message.getId(), message);
+        for (GroupChatMessage message : saved) byId.put(message.getId(), message);
+        return new ArrayList<>(byId.values());
+    }
+
+    private int clampPageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // Admins see expired content; everyone else gets the placeholder. Expiry itself is flagged by MessageExpiryService.
+    private boolean isAdmin(String email) {
+        User user = userRepository.findByEmail(email).orElse(null);
+        return user != null && "ADMIN".equals(user.getRole());
+    }
+
+    /**
+     * Builds views for a page of messages with a fixed number of queries: reaction counts and poll
+     * tallies are aggregated in the database, poll options arrive in @BatchSize chunks.
+     */
+    private List<ChatMessageView> toViews(List<GroupChatMessage> messages, boolean redactExpired) {
+        if (messages.isEmpty()) return List.of();
+
+        List<Long> ids = messages.stream().map(GroupChatMessage::getId).toList();
+        Map<Long, Map<String, Long>> reactions = new HashMap<>();
+        for (Object[] row : reactionRepository.countByMessageIds(ids)) {
+            reactions.computeIfAbsent((Long) row[0], k -> new LinkedHashMap<>()).put((String) row[1], (Long) row[2]);
+        }
+
+        List<Long> pollIds = messages.stream()
+                .filter(m -> m.getType() == GroupChatMessage.MessageType.POLL)
+                .map(GroupChatMessage::getId)
+                .toList();
+        Map<Long, Map<Integer, Long>> tallies = new HashMap<>();
+        if (!pollIds.isEmpty()) {
+            for (Object[] row : pollVoteRepository.tallyByMessageIds(pollIds)) {
+                tallies.computeIfAbsent((Long) row[0], k -> new HashMap<>()).put((Integer) row[1], (Long) row[2]);
+            }
+        }
+
+        List<ChatMessageView> views = new ArrayList<>(messages.size());
+        for (GroupChatMessage message : messages) {
+            Map<String, Long> reactionCounts = reactions.getOrDefault(message.getId(), Map.of());
+            if (message.getType() != GroupChatMessage.MessageType.POLL) {
+                views.add(new ChatMessageView(message, redactExpired, reactionCounts, List.of(), List.of()));
+                continue;
+            }
+            List<String> options = new ArrayList<>(message.getPollOptions());
+            Map<Integer, Long> votes = tallies.getOrDefault(message.getId(), Map.of());
+            List<Long> optionTallies = new ArrayList<>(options.size());
+            for (int i = 0; i < options.size(); i++) {
+                optionTallies.add(votes.getOrDefault(i, 0L));
+            }
+            views.add(new ChatMessageView(message, redactExpired, reactionCounts, options, optionTallies));
+        }
+        return views;
+    }
+}
@@ -1,6 +1,9 @@
 package com.anonymous.social.service;
 
+import com.anonymous.social.dto.ChatMessageView;
 import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.model.MessageReaction;
+import com.anonymous.social.model.PollVote;
 import com.anonymous.social.model.SocialGroup;
 import com.anonymous.social.model.User;
 import com.anonymous.social.repository.GroupChatMessageRepository;
@@ -10,9 +13,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Transactional
@@ -30,32 +42,87 @@ public class ChatService {
     @Autowired
     private WordFilterService wordFilterService;
 
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
     @Autowired
     private com.anonymous.social.repository.MessageEditHistoryRepository editHistoryRepository;
 
     @Autowired
     private com.anonymous.social.repository.PollVoteRepository pollVoteRepository;
 
-    @Transactional(noRollbackFor = IllegalArgumentException.class)
-    public GroupChatMessage saveMessage(Long groupId, String email, String messageContent, Long replyToId,
+    @Autowired
+    private MessageExpiryService messageExpiryService;
+
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Runs outside a transaction unless the caller has one. A write-behind send then needs no database
+     * connection: the sender comes from the principal cache, the group and an unsaved reply are
+     * referenced by id, so sends keep working while the database is down. Synchronous sends and bans
+     * open a transaction for their writes, and a reply to a saved message reads it for the preview.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, noRollbackFor = IllegalArgumentException.class)
+    public ChatMessageView saveMessage(Long groupId, String email, String messageContent, Long replyToId,
                                         String typeStr, Integer expiresInMinutes,
                                         String pollQuestion, List<String> pollOptions) {
-        User user = userRepository.findByEmail(email).orElseThrow();
+        // Id, alias and ban state come from the principal cache the request was authenticated with
+        CustomUserDetailsService.UserPrincipal sender = userDetailsService.loadPrincipal(email);
 
         // Check if user is banned
-        if (user.getBannedUntil() != null && user.getBannedUntil().isAfter(LocalDateTime.now())) {
-            throw new IllegalArgumentException("You are temporarily banned until " + user.getBannedUntil());
+        if (sender.isBanned()) {
+            throw new IllegalArgumentException("You are temporarily banned until " + sender.getBannedUntil());
         }
 
         // Check for banned words (Skip for basic commands, but apply to general text and polls)
-        if (wordFilterService.getBanDuration(messageContent) > 0 || wordFilterService.getBanDuration(pollQuestion) > 0) {
-             int banDuration = Math.max(wordFilterService.getBanDuration(messageContent), wordFilterService.getBanDuration(pollQuestion));
-             user.setBannedUntil(LocalDateTime.now().plusMinutes(banDuration));
-             userRepository.save(user);
+        // Each text is scanned exactly once; the automaton already reports the longest applicable ban
+        int banDuration = Math.max(wordFilterService.getBanDuration(messageContent), wordFilterService.getBanDuration(pollQuestion));
+        if (banDuration > 0) {
+             transactionTemplate.executeWithoutResult(status -> {
+                 User banned = userRepository.getReferenceById(sender.getUserId());
+                 banned.setBannedUntil(LocalDateTime.now().plusMinutes(banDuration));
+                 userRepository.save(banned);
+                 // The cached principal carries the ban state checked above, so the next send must reload it
+                 userDetailsService.evictAfterCommit(email);
+             });
              throw new IllegalArgumentException("Content blocked. You are banned for " + banDuration + " minutes.");
         }
 
-        SocialGroup group = groupRepository.findById(groupId).orElseThrow();
+        if (!chatWriteBehindService.isEnabled()) {
+            return transactionTemplate.execute(status -> {
+                GroupChatMessage saved = chatMessageRepository.save(buildMessage(groupId, email, sender, messageContent,
+                        replyToId, typeStr, expiresInMinutes, pollQuestion, pollOptions));
+                if (saved.getExpiresAt() != null) {
+                    scheduleExpiry(saved.getId(), saved.getExpiresAt());
+                }
+                return toView(saved, false);
+            });
+        }
+
+        // Journaled and broadcast now; the writer inserts it and schedules its expiry
+        GroupChatMessage chatMessage = buildMessage(groupId, email, sender, messageContent,
+                replyToId, typeStr, expiresInMinutes, pollQuestion, pollOptions);
+        chatWriteBehindService.submit(chatMessage);
+        return toView(chatMessage, false);
+    }
+
+    private GroupChatMessage buildMessage(Long groupId, String email, CustomUserDetailsService.UserPrincipal sender,
+                                          String messageContent, Long replyToId, String typeStr, Integer expiresInMinutes,
+                                          String pollQuestion, List<String> pollOptions) {
+        // Detached stand-in for the sender: the insert only needs its id, the view its alias and colour
+        User user = new User();
+        user.setId(sender.getUserId());
+        user.setEmail(email);
+        user.setAnonymousName(sender.getAnonymousName());
+        user.setAvatarColor(sender.getAvatarColor());
+
+        // Only the FK is needed to insert the message, so don't load the group row (or its creator)
+        SocialGroup group = new SocialGroup();
+        group.setId(groupId);
         GroupChatMessage chatMessage = new GroupChatMessage();
         chatMessage.setGroup(group);
         chatMessage.setUser(user);
@@ -97,13 +164,41 @@ public class ChatService {
         }
 
         if (replyToId != null) {
-            chatMessageRepository.findById(replyToId).ifPresent(chatMessage::setReplyTo);
+            // The message replied to may still be waiting for the write-behind writer
+            GroupChatMessage unsaved = chatWriteBehindService.getPending(replyToId);
+            chatMessage.setReplyTo(unsaved != null ? unsaved : transactionTemplate.execute(status -> loadReply(replyToId)));
         }
 
-        return chatMessageRepository.save(chatMessage);
+        return chatMessage;
     }
 
-    public GroupChatMessage editMessage(Long messageId, String email, String newContent) {
+    // Loaded once here for the reply preview; an id that no longer exists is dropped, not inserted
+    private GroupChatMessage loadReply(Long replyToId) {
+        GroupChatMessage reply = chatMessageRepository.getReferenceById(replyToId);
+        try {
+            org.hibernate.Hibernate.initialize(reply);
+            return reply;
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            // replying to a deleted message posts it as a plain one, as before
+            return null;
+        }
+    }
+
+    // The expiry worker must not look for the row before it is committed
+    private void scheduleExpiry(Long messageId, LocalDateTime expiresAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    messageExpiryService.schedule(messageId, expiresAt);
+                }
+            });
+        } else {
+            messageExpiryService.schedule(messageId, expiresAt);
+        }
+    }
+
+    public ChatMessageView editMessage(Long messageId, String email, String newContent) {
         User user = userRepository.findByEmail(email).orElseThrow();
         GroupChatMessage message = chatMessageRepository.findById(messageId).orElseThrow();
 
@@ -121,10 +216,10 @@ public class ChatService {
 
         message.setMessage(newContent);
         message.setEdited(true);
-        return chatMessageRepository.save(message);
+        return toView(chatMessageRepository.save(message), false);
     }
 
-    public GroupChatMessage votePoll(Long messageId, String email, int optionIndex) {
+    public ChatMessageView votePoll(Long messageId, String email, int optionIndex) {
         User user = userRepository.findByEmail(email).orElseThrow();
         GroupChatMessage message = chatMessageRepository.findById(messageId).orElseThrow();
 
@@ -142,13 +237,13 @@ public class ChatService {
             pollVoteRepository.save(vote);
             message.getVotes().add(vote); // Add to list for internal consistency if needed (though JPA handles relation via repo save usually)
         }
-        return chatMessageRepository.save(message); // Refresh state
+        return toView(chatMessageRepository.save(message), false); // Refresh state
     }
 
     @Autowired
     private com.anonymous.social.repository.MessageReactionRepository reactionRepository;
 
-    public GroupChatMessage addReaction(Long messageId, String email, String emoji) {
+    public ChatMessageView addReaction(Long messageId, String email, String emoji) {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new IllegalArgumentException("User not found"));
         GroupChatMessage message = chatMessageRepository.findById(messageId).orElseThrow(() -> new IllegalArgumentException("Message not found"));
 
@@ -172,56 +267,24 @@ public class ChatService {
             message.getReactions().add(reaction);
         }
 
-        return chatMessageRepository.save(message);
+        return toView(chatMessageRepository.save(message), false);
     }
 
-    public List<GroupChatMessage> getGroupMessages(Long groupId) {
-        List<GroupChatMessage> messages = chatMessageRepository.findByGroupIdOrderByCreatedAtAsc(groupId);
-        LocalDateTime now = LocalDateTime.now();
-
-        // Redact expired messages
-        messages.forEach(msg -> {
-            if (msg.getExpiresAt() != null && msg.getExpiresAt().isBefore(now)) {
-                msg.setMessage("[MESSAGE EXPIRED]");
-                msg.setExpiresAt(null); // Clear it so client knows it's gone? Or keep it to show "Expired" UI.
-                // Better: Client sees "Expired" content.
-                // Ideally we shouldn't mute the object permanently in DB here if this is called by admin?
-                // But this method `getGroupMessages` is public.
-                // Ideally, we return DTOs. For now, mutating the object in memory (not saving) is "okay" for read-only view,
-                // BUT JPA might dirty check and save it back if transaction is open!
-                // Since this is @Transactional, it MIGHT save "[MESSAGE EXPIRED]" to DB!
-                // FIX: Detach or use DTO.
-                // Simple Fix for now: Don't set it. Just rely on Frontend to hide it?
-                // NO, SECURITY.
-                // We must rely on DTO ideally.
-                // Hack for this Agent context: Create a copy or assume read-only transaction (but it's not).
-                // Let's modify the controller to map to DTO or handle redaction there.
-                // Or, use `entityManager.detach(msg)` before modifying.
-                // For safety in this specific "hacky" codebase style:
-                // We will rely on Controller to do redaction or handle it carefully.
+    // Single-message variant for write paths, where the message's collections are already in hand
+    private ChatMessageView toView(GroupChatMessage message, boolean redactExpired) {
+        Map<String, Long> reactionCounts = message.getReactions().stream()
+                .collect(Collectors.groupingBy(MessageReaction::getEmoji, LinkedHashMap::new, Collectors.counting()));
+        if (message.getType() != GroupChatMessage.MessageType.POLL) {
+            return new ChatMessageView(message, redactExpired, reactionCounts, List.of(), List.of());
+        }
+        List<String> options = new ArrayList<>(message.getPollOptions());
+        Long[] optionTallies = new Long[options.size()];
+        Arrays.fill(optionTallies, 0L);
+        for (PollVote vote : message.getVotes()) {
+            if (vote.getOptionIndex() >= 0 && vote.getOptionIndex() < optionTallies.length) {
+                optionTallies[vote.getOptionIndex()]++;
             }
-        });
-        return messages;
-    }
-
-    public List<GroupChatMessage> getGroupMessagesForUser(Long groupId, String email) {
-        List<GroupChatMessage> messages = chatMessageRepository.findByGroupIdOrderByCreatedAtAsc(groupId);
-        LocalDateTime now = LocalDateTime.now();
-        // Here we can check if user is admin to return full content, else redact.
-        User user = userRepository.findByEmail(email).orElse(null);
-        boolean isAdmin = user != null && "ADMIN".equals(user.getRole());
-
-        if (!isAdmin) {
-             messages.forEach(msg -> {
-                 if (msg.getExpiresAt() != null && msg.getExpiresAt().isBefore(now)) {
-                     msg.setMessage("👻 [Message Expired]");
-                     // Use a transient field or Modify content in-memory.
-                     // WARNING: JPA Transaction might persist this change!
-                     // We need to be careful. Ideally we return DTOs.
-                     // Let's just return it for now and assume we'll fix the persistence issue by detaching.
-                 }
-             });
         }
-        return messages;
+        return new ChatMessageView(message, redactExpired, reactionCounts, options, Arrays.asList(optionTallies));
     }
 }
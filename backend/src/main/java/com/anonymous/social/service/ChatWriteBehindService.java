@@ -0,0 +1,483 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.utils.AppendOnlyJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind for chat sends ({@code chat.write-behind.enabled=true}). A message gets its
+ * id here, is appended to a local {@link AppendOnlyJournal} and fsynced (one fsync per group of
+ * concurrent senders), and is then broadcast without waiting for the database. One writer thread
+ * inserts the queue in id order as JDBC batches, so each room's rows land in send order.
+ *
+ * History reads merge in {@link #getInFlight} so a reconnecting client's ?since= delta never skips a
+ * message that was broadcast but not yet inserted. Saved messages stay in that view for
+ * {@code retain-saved-ms}, covering replicas that have not caught up with the insert yet.
+ *
+ * Single node only ({@code chat.broker.mode=simple}): ids continue from the table's MAX(id) in this
+ * JVM, and other nodes could neither see its unsaved messages nor edit or react to them.
+ *
+ * The queue is bounded by {@code queue-capacity} unsaved messages; a sender waits up to
+ * {@code offer-timeout-ms} for room and is then refused. Database outages are retried with backoff,
+ * rows the database rejects (room deleted meanwhile) are dropped and counted. Whatever is still in
+ * the journal at startup, after a crash or an unfinished shutdown, is inserted before the first send.
+ */
+@Service
+public class ChatWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatWriteBehindService.class);
+
+    private static final long RETRY_BASE_MS = 100;
+
+    private static final String INSERT_MESSAGE = "INSERT INTO group_chat_messages (id, group_id, user_id, message, created_at, " +
+            "reply_to_id, type, expires_at, expired, is_edited, poll_question) VALUES (?, ?, ?, ?, ?, ?, ?, ?, FALSE, FALSE, ?)";
+    private static final String INSERT_POLL_OPTION = "INSERT INTO poll_options (message_id, option_text) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageExpiryService messageExpiryService;
+
+    // Depending on it means ddl-auto has created the tables before recovery inserts into them
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${chat.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chat.write-behind.offer-timeout-ms:2000}")
+    private long offerTimeoutMs;
+
+    @Value("${chat.write-behind.retry-max-ms:5000}")
+    private long retryMaxMs;
+
+    @Value("${chat.write-behind.journal.dir:data/chat-journal}")
+    private String journalDir;
+
+    @Value("${chat.write-behind.journal.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    @Value("${chat.write-behind.journal.fsync:true}")
+    private boolean fsync;
+
+    @Value("${chat.write-behind.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${chat.write-behind.retain-saved-ms:10000}")
+    private long retainSavedMs;
+
+    // One row of group_chat_messages plus its poll options, as journaled and inserted
+    static final class JournalEntry {
+        public long id;
+        public long groupId;
+        public long userId;
+        public String message;
+        public String type;
+        public LocalDateTime createdAt;
+        public LocalDateTime expiresAt;
+        public Long replyToId;
+        public String pollQuestion;
+        public List<String> pollOptions;
+    }
+
+    private static final class Pending {
+        final GroupChatMessage message;
+        final JournalEntry entry;
+        final CompletableFuture<Void> persisted = new CompletableFuture<>();
+        volatile long savedAtMs;
+
+        Pending(GroupChatMessage message, JournalEntry entry) {
+            this.message = message;
+            this.entry = entry;
+        }
+    }
+
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // Accepted and not yet inserted, or inserted less than retain-saved-ms ago; by id
+    private final ConcurrentSkipListMap<Long, Pending> pending = new ConcurrentSkipListMap<>();
+    // Held across the journal write; a lock rather than a monitor, so a waiting virtual thread unmounts
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final LongAdder persistedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private Semaphore capacity;
+    private AppendOnlyJournal journal;
+    private long lastId;
+    private long recoveredCount;
+    private volatile long lastBatchMs;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path directory = Paths.get(journalDir);
+        if (!enabled) {
+            // Switched off after an unclean stop: still insert what the journal holds
+            if (Files.isDirectory(directory)) {
+                try (AppendOnlyJournal leftover = new AppendOnlyJournal(directory, segmentBytes)) {
+                    recover(leftover);
+                }
+            }
+            return;
+        }
+        if (!"simple".equals(brokerMode)) {
+            throw new IllegalStateException("chat.write-behind.enabled needs chat.broker.mode=simple, not " + brokerMode);
+        }
+        journal = new AppendOnlyJournal(directory, segmentBytes);
+        recover(journal);
+
+        // Carry on where IDENTITY (or the replayed journal) left off
+        lastId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM group_chat_messages", Long.class);
+
+        capacity = new Semaphore(queueCapacity);
+        accepting = true;
+        running = true;
+        writer = new Thread(this::writeLoop, "chat-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled) return;
+        accepting = false;
+        running = false;
+        writer.join(shutdownTimeoutMs);
+        if (!queue.isEmpty()) {
+            logger.warn("{} chat messages not yet saved at shutdown, the journal replays them on next start", queue.size());
+        }
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assigns the message its id and makes it durable in the journal. Once this returns the message
+     * may be broadcast; the database insert follows.
+     */
+    public void submit(GroupChatMessage message) {
+        if (!accepting) throw new IllegalStateException("Chat write-behind is not accepting messages");
+        try {
+            if (!capacity.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCount.increment();
+                throw new IllegalArgumentException("Chat is busy, please resend in a moment");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for chat queue space", e);
+        }
+
+        long position;
+        appendLock.lock();
+        try {
+            message.setId(++lastId);
+            if (message.getCreatedAt() == null) message.setCreatedAt(LocalDateTime.now());
+            JournalEntry entry = toEntry(message);
+            try {
+                position = journal.append(entry.id, objectMapper.writeValueAsBytes(entry));
+            } catch (IOException e) {
+                capacity.release();
+                throw new IllegalStateException("Chat journal write failed", e);
+            }
+            Pending item = new Pending(message, entry);
+            pending.put(entry.id, item);
+            queue.add(item);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (fsync) {
+            try {
+                journal.sync(position);
+            } catch (IOException e) {
+                // Already queued and about to be inserted; only a crash before then would lose it
+                logger.error("Chat journal fsync failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The accepted message with this id if it is not inserted yet (or only just), else null.
+     */
+    public GroupChatMessage getPending(Long messageId) {
+        Pending item = messageId != null ? pending.get(messageId) : null;
+        return item != null ? item.message : null;
+    }
+
+    /**
+     * This node's unsaved and just-saved messages of a group with ids in (afterId, beforeId), in id
+     * order. Either bound may be null.
+     */
+    public List<GroupChatMessage> getInFlight(Long groupId, Long afterId, Long beforeId) {
+        if (!enabled) return List.of();
+        Map<Long, Pending> range = pending;
+        if (afterId != null && beforeId != null) {
+            if (afterId >= beforeId) return List.of();
+            range = pending.subMap(afterId, false, beforeId, false);
+        } else if (afterId != null) {
+            range = pending.tailMap(afterId, false);
+        } else if (beforeId != null) {
+            range = pending.headMap(beforeId, false);
+        }
+        List<GroupChatMessage> messages = new ArrayList<>();
+        for (Pending item : range.values()) {
+            if (item.entry.groupId == groupId) messages.add(item.message);
+        }
+        return messages;
+    }
+
+    /**
+     * Waits until a message this node accepted has been inserted (or dropped), so edits, votes and
+     * reactions find its row.
+     */
+    public void awaitPersisted(Long messageId) {
+        Pending item = messageId != null ? pending.get(messageId) : null;
+        if (item == null) return;
+        try {
+            item.persisted.get(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalArgumentException("Message is still being saved, please try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for message " + messageId, e);
+        } catch (ExecutionException e) {
+            // Never completed exceptionally
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            List<Pending> batch = new ArrayList<>();
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                releaseSaved();
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            List<JournalEntry> entries = batch.stream().map(item -> item.entry).toList();
+            Set<Long> dropped = persist(entries);
+            if (dropped == null) return;
+
+            long now = System.currentTimeMillis();
+            for (Pending item : batch) {
+                if (dropped.contains(item.entry.id)) {
+                    pending.remove(item.entry.id);
+                } else {
+                    item.savedAtMs = now;
+                }
+                item.persisted.complete(null);
+                if (item.entry.expiresAt != null) {
+                    messageExpiryService.schedule(item.entry.id, item.entry.expiresAt);
+                }
+            }
+            capacity.release(batch.size());
+            try {
+                journal.release(entries.get(entries.size() - 1).id);
+            } catch (IOException e) {
+                logger.warn("Could not delete saved chat journal segments: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Saved entries leave the in-flight view oldest first; ids are saved in order
+    private void releaseSaved() {
+        long cutoff = System.currentTimeMillis() - retainSavedMs;
+        for (Pending item : pending.values()) {
+            if (item.savedAtMs == 0 || item.savedAtMs > cutoff) break;
+            pending.remove(item.entry.id, item);
+        }
+    }
+
+    /**
+     * Inserts the entries, retrying with backoff while the database is unavailable, and returns the
+     * ids the database refused. Returns null only when shutdown interrupts the retries; the entries
+     * then stay in the journal.
+     */
+    private Set<Long> persist(List<JournalEntry> entries) {
+        long delay = RETRY_BASE_MS;
+        while (true) {
+            try {
+                long start = System.currentTimeMillis();
+                Set<Long> dropped = Set.of();
+                try {
+                    insert(entries);
+                } catch (DataIntegrityViolationException e) {
+                    dropped = insertEach(entries);
+                }
+                lastBatchMs = System.currentTimeMillis() - start;
+                batchCount.increment();
+                return dropped;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    logger.warn("Saving {} chat messages failed during shutdown, left in the journal: {}", entries.size(), e.getMessage());
+                    return null;
+                }
+                retryCount.increment();
+                logger.warn("Saving {} chat messages failed, retrying in {} ms: {}", entries.size(), delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                delay = Math.min(retryMaxMs, delay * 2);
+            }
+        }
+    }
+
+    // One row at a time, to tell rows already there (journal replay) from rows the database refuses
+    private Set<Long> insertEach(List<JournalEntry> entries) {
+        Set<Long> dropped = new HashSet<>();
+        for (JournalEntry entry : entries) {
+            try {
+                insert(List.of(entry));
+            } catch (DuplicateKeyException e) {
+                // Inserted before the crash or retry
+            } catch (DataIntegrityViolationException e) {
+                droppedCount.increment();
+                dropped.add(entry.id);
+                logger.warn("Dropping chat message {} for group {}: {}", entry.id, entry.groupId, e.getMostSpecificCause().getMessage());
+            }
+        }
+        return dropped;
+    }
+
+    private void insert(List<JournalEntry> entries) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE, entries, entries.size(), (ps, entry) -> {
+                ps.setLong(1, entry.id);
+                ps.setLong(2, entry.groupId);
+                ps.setLong(3, entry.userId);
+                ps.setString(4, entry.message);
+                ps.setTimestamp(5, Timestamp.valueOf(entry.createdAt));
+                if (entry.replyToId != null) ps.setLong(6, entry.replyToId); else ps.setNull(6, Types.BIGINT);
+                ps.setString(7, entry.type);
+                ps.setTimestamp(8, entry.expiresAt != null ? Timestamp.valueOf(entry.expiresAt) : null);
+                ps.setString(9, entry.pollQuestion);
+            });
+            List<Object[]> options = new ArrayList<>();
+            for (JournalEntry entry : entries) {
+                if (entry.pollOptions == null) continue;
+                for (String option : entry.pollOptions) options.add(new Object[]{entry.id, option});
+            }
+            if (!options.isEmpty()) jdbcTemplate.batchUpdate(INSERT_POLL_OPTION, options);
+        });
+        persistedCount.add(entries.size());
+    }
+
+    private void recover(AppendOnlyJournal source) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        for (byte[] record : source.replay()) {
+            entries.add(objectMapper.readValue(record, JournalEntry.class));
+        }
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<JournalEntry> batch = entries.subList(from, Math.min(entries.size(), from + batchSize));
+            // Fails startup if the database is down; the journal is kept for the next attempt
+            try {
+                insert(batch);
+            } catch (DataIntegrityViolationException e) {
+                insertEach(batch);
+            }
+        }
+        source.discardReplayed();
+        if (!entries.isEmpty()) {
+            recoveredCount = entries.size();
+            logger.info("Replayed {} chat messages from the write-behind journal", entries.size());
+        }
+    }
+
+    private static JournalEntry toEntry(GroupChatMessage message) {
+        JournalEntry entry = new JournalEntry();
+        entry.id = message.getId();
+        entry.groupId = message.getGroup().getId();
+        entry.userId = message.getUser().getId();
+        entry.message = message.getMessage();
+        entry.type = message.getType().name();
+        entry.createdAt = message.getCreatedAt();
+        entry.expiresAt = message.getExpiresAt();
+        entry.replyToId = message.getReplyTo() != null ? message.getReplyTo().getId() : null;
+        entry.pollQuestion = message.getPollQuestion();
+        entry.pollOptions = message.getType() == GroupChatMessage.MessageType.POLL ? List.copyOf(message.getPollOptions()) : null;
+        return entry;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) return stats;
+        stats.put("queued", queue.size());
+        stats.put("unsaved", queueCapacity - capacity.availablePermits());
+        stats.put("inFlightView", pending.size());
+        stats.put("persisted", persistedCount.sum());
+        stats.put("batches", batchCount.sum());
+        stats.put("lastBatchMs", lastBatchMs);
+        stats.put("retries", retryCount.sum());
+        stats.put("dropped", droppedCount.sum());
+        stats.put("rejected", rejectedCount.sum());
+        stats.put("recovered", recoveredCount);
+        stats.put("journalSegments", journal.getSegmentCount());
+        stats.put("journalBytes", journal.getPendingBytes());
+        stats.put("journalSyncs", journal.getSyncCount());
+        return stats;
+    }
+}
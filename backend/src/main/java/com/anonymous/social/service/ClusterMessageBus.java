@@ -0,0 +1,40 @@
+package com.anonymous.social.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Node-to-node pub/sub used to fan broker messages out to the other backend instances. A frame
+ * published on one node is delivered to the receivers of every other node, never back to itself.
+ *
+ * Delivery is best effort: a node that misses frames (restart, full queue) catches up the way any
+ * reconnecting client does, through the history endpoints.
+ */
+public interface ClusterMessageBus {
+
+    /** Queues the frame for the other nodes; must not block on the network. */
+    void publish(Frame frame);
+
+    void subscribe(Consumer<Frame> receiver);
+
+    default void start() throws Exception {
+    }
+
+    default void stop() {
+    }
+
+    final class Frame {
+        private final String destination;
+        private final String contentType;
+        private final byte[] payload;
+
+        public Frame(String destination, String contentType, byte[] payload) {
+            this.destination = destination;
+            this.contentType = contentType;
+            this.payload = payload;
+        }
+
+        public String getDestination() { return destination; }
+        public String getContentType() { return contentType; }
+        public byte[] getPayload() { return payload; }
+    }
+}
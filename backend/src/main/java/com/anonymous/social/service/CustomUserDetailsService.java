@@ -2,27 +2,172 @@ package com.anonymous.social.service;
 
 import com.anonymous.social.model.User;
 import com.anonymous.social.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    // Evicted emails, so each node drops its own copy (chat.broker.mode=bus)
+    private static final String CLUSTER_DESTINATION = "/cluster/principal-evict";
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired(required = false)
+    private ClusterMessageBus clusterMessageBus;
+
+    @Value("${security.principal-cache.ttl-ms:60000}")
+    private long principalTtlMs;
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private int principalMaxSize;
+
+    // Principals for token-authenticated requests, keyed by email. Entries hold no password hash.
+    private Cache<String, UserPrincipal> principalCache;
+    // Bumped on every eviction so a load that raced with it is not cached with stale data
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        principalCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(principalTtlMs))
+                .maximumSize(principalMaxSize)
+                .recordStats()
+                .build();
+        if (clusterMessageBus != null) clusterMessageBus.subscribe(this::receive);
+    }
+
+    /**
+     * Token principal plus the few user fields hot paths need without a lookup: the id for foreign
+     * keys, the alias and colour shown with chat messages, and the ban state. Anything that changes
+     * these must call {@link #evict(String)}.
+     */
+    public static final class UserPrincipal extends org.springframework.security.core.userdetails.User {
+        private final Long userId;
+        private final String anonymousName;
+        private final String avatarColor;
+        private final LocalDateTime bannedUntil;
+
+        UserPrincipal(User user, String password) {
+            super(user.getEmail(), password, java.util.Collections.singletonList(
+                    new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + user.getRole())));
+            this.userId = user.getId();
+            this.anonymousName = user.getAnonymousName();
+            this.avatarColor = user.getAvatarColor();
+            this.bannedUntil = user.getBannedUntil();
+        }
+
+        public Long getUserId() { return userId; }
+        public String getAnonymousName() { return anonymousName; }
+        public String getAvatarColor() { return avatarColor; }
+        public LocalDateTime getBannedUntil() { return bannedUntil; }
+
+        public boolean isBanned() {
+            return bannedUntil != null && bannedUntil.isAfter(LocalDateTime.now());
+        }
+    }
+
+
+    // Used by the authentication manager for password login, so it always reads the current hash
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        return new UserPrincipal(user, user.getPassword());
+    }
+
+    /**
+     * Principal for a request that already carries a verified JWT. Served from a bounded TTL cache;
+     * role changes, identity resets, bans and deletes call {@link #evict(String)}.
+     */
+    public UserPrincipal loadPrincipal(String email) throws UsernameNotFoundException {
+        UserPrincipal cached = principalCache.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
 
-        var authorities = java.util.Collections.singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + user.getRole()));
+        // Loaded outside the cache's compute so no map lock is held across the query
+        long loadGeneration = generation.get();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        UserPrincipal details = new UserPrincipal(user, "");
+        if (generation.get() == loadGeneration) {
+            principalCache.put(email, details);
+        }
+        return details;
+    }
+
+    /**
+     * Drops the cached principal here and, with a cluster bus, on every other node. Without one
+     * (chat.broker.mode=relay) other nodes keep theirs for up to the TTL.
+     */
+    public void evict(String email) {
+        if (email == null) return;
+        invalidate(email);
+        if (clusterMessageBus != null) {
+            clusterMessageBus.publish(new ClusterMessageBus.Frame(CLUSTER_DESTINATION, "text/plain",
+                    email.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Evicts now and, inside a transaction, again after commit: a request that reloads the principal
+     * before the change is committed would otherwise cache the old row for a full TTL.
+     */
+    public void evictAfterCommit(String email) {
+        evict(email);
+        if (email != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(email);
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getPrincipalCacheStats() {
+        CacheStats cacheStats = principalCache.stats();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", principalCache.estimatedSize());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        // Dropped for size or age; explicit evicts are counted as invalidations
+        stats.put("evictions", cacheStats.evictionCount());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("hitRatio", cacheStats.requestCount() == 0 ? 0.0 : cacheStats.hitRate());
+        return stats;
+    }
+
+    private void invalidate(String email) {
+        generation.incrementAndGet();
+        if (principalCache.asMap().remove(email) != null) {
+            invalidations.increment();
+        }
+    }
 
-        return new org.springframework.security.core.userdetails.User(user.getEmail(), user.getPassword(), authorities);
+    private void receive(ClusterMessageBus.Frame frame) {
+        if (!CLUSTER_DESTINATION.equals(frame.getDestination())) return;
+        invalidate(new String(frame.getPayload(), StandardCharsets.UTF_8));
     }
 }
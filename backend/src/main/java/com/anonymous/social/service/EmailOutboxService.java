@@ -0,0 +1,178 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.model.EmailOutbox;
+import com.anonymous.social.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Queued email delivery. Callers only insert an outbox row; a small bounded worker pool does the
+ * SMTP round trip, so signup and password reset never wait on (or fail with) the mail server.
+ *
+ * New rows are handed to the workers right after commit. Anything the workers could not take (full
+ * queue, restart, another node) and every retry is picked up by the poller. Failed sends back off
+ * exponentially with jitter until {@code mail.outbox.max-attempts}, then the row is marked FAILED.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    public static final String KIND_OTP = "OTP";
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${mail.outbox.workers:2}")
+    private int workerCount;
+
+    @Value("${mail.outbox.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.retry-base-ms:5000}")
+    private long retryBaseMs;
+
+    @Value("${mail.outbox.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    @Value("${mail.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${mail.outbox.poll-batch-size:50}")
+    private int pollBatchSize;
+
+    @Value("${mail.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    private ThreadPoolTaskExecutor workers;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        workers = new ThreadPoolTaskExecutor();
+        workers.setThreadNamePrefix("mail-outbox-");
+        workers.setCorePoolSize(workerCount);
+        workers.setMaxPoolSize(workerCount);
+        workers.setQueueCapacity(queueCapacity);
+        workers.setWaitForTasksToCompleteOnShutdown(true);
+        workers.setAwaitTerminationSeconds(10);
+        workers.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public void sendOtp(String to, String otp) {
+        // The OTP stays retrievable from the server log when mail is down
+        System.out.println("--------------------------------------------------");
+        System.out.println("QUEUED OTP EMAIL TO: " + to);
+        System.out.println("OTP: " + otp);
+        System.out.println("--------------------------------------------------");
+
+        // Only the newest code is valid, so an older one still waiting for a retry must not arrive after it
+        emailOutboxRepository.deletePendingFor(to, KIND_OTP);
+        EmailOutbox saved = emailOutboxRepository.save(new EmailOutbox(to, KIND_OTP, otp));
+        Long id = saved.getId();
+        // Workers must not look for the row before it is committed (or at all, if it rolls back)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(id);
+                }
+            });
+        } else {
+            dispatch(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:5000}")
+    public void poll() {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.releaseExpiredLeases(now);
+        for (Long id : emailOutboxRepository.findDueIds(now, PageRequest.of(0, pollBatchSize))) {
+            dispatch(id);
+        }
+        emailOutboxRepository.deleteFinishedBefore(now.minusHours(retentionHours));
+    }
+
+    private void dispatch(Long id) {
+        try {
+            workers.execute(() -> deliver(id));
+        } catch (TaskRejectedException e) {
+            // Still PENDING in the table; the next poll retries it
+            logger.debug("Mail worker queue full, outbox row {} left for the poller", id);
+        }
+    }
+
+    void deliver(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        if (emailOutboxRepository.claim(id, now, now.plusNanos(leaseMs * 1_000_000)) == 0) {
+            return; // already taken, sent, or not due yet
+        }
+        EmailOutbox row = emailOutboxRepository.findById(id).orElse(null);
+        if (row == null) return;
+
+        try {
+            if (KIND_OTP.equals(row.getKind())) {
+                emailService.sendOtpNow(row.getRecipient(), row.getPayload());
+            } else {
+                throw new IllegalStateException("Unknown email kind: " + row.getKind());
+            }
+            emailOutboxRepository.markSent(id, LocalDateTime.now());
+            delivered.increment();
+        } catch (Exception e) {
+            failedAttempts.increment();
+            int attempts = row.getAttempts() + 1;
+            String error = String.valueOf(e.getMessage());
+            if (error.length() > 500) error = error.substring(0, 500);
+            if (attempts >= maxAttempts) {
+                logger.error("Giving up on email {} to {} after {} attempts: {}", id, row.getRecipient(), attempts, error);
+                emailOutboxRepository.markAttemptFailed(id, EmailOutbox.FAILED, attempts, LocalDateTime.now(), error);
+            } else {
+                long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 20));
+                delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1); // spread retries after an outage
+                logger.warn("Email {} to {} failed (attempt {}), retrying in {} ms: {}", id, row.getRecipient(), attempts, delay, error);
+                emailOutboxRepository.markAttemptFailed(id, EmailOutbox.PENDING, attempts,
+                        LocalDateTime.now().plusNanos(delay * 1_000_000), error);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Object[] row : emailOutboxRepository.countByStatus()) {
+            stats.put(((String) row[0]).toLowerCase(), row[1]);
+        }
+        stats.put("queuedInWorkers", workers.getThreadPoolExecutor().getQueue().size());
+        stats.put("deliveredSinceStart", delivered.sum());
+        stats.put("failedAttemptsSinceStart", failedAttempts.sum());
+        return stats;
+    }
+}
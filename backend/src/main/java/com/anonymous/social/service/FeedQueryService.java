@@ -0,0 +1,149 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.config.ReplicaReads;
+import com.anonymous.social.dto.FeedCursor;
+import com.anonymous.social.dto.FeedPage;
+import com.anonymous.social.model.Post;
+import com.anonymous.social.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Post feed reads, in read-only transactions: loaded posts carry no dirty-checking snapshots and
+ * the session never flushes, so serializing them afterwards cannot turn into writes. With read
+ * replicas configured only pages past the first go to a replica. The first page and the response
+ * cache loaders read the primary: a post created just before a cache invalidation must be in the
+ * listing cached after it. Writes stay in {@link PostService}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FeedQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedQueryService.class);
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostRankingService postRankingService;
+
+    public static final String BROADCAST_PREFIX = "[SYSTEM BROADCAST]";
+
+    // Lower bound for unfiltered feed pages; keeps the keyset predicate a pure range on the index
+    private static final LocalDateTime FEED_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Value("${feed.page-size.default:20}")
+    private int defaultPageSize;
+
+    @Value("${feed.page-size.max:50}")
+    private int maxPageSize;
+
+    @Value("${feed.legacy.max-posts:100}")
+    private int legacyMaxPosts;
+
+    @Value("${feed.broadcasts.max:20}")
+    private int maxBroadcasts;
+
+    /**
+     * The newest {@code feed.legacy.max-posts} posts, for clients still on the unpaged /api/posts.
+     * Deprecated: the web client pages through {@link #getFeedPage} instead, this is the same range
+     * scan with a fixed size and no cursor.
+     */
+    public List<Post> getAllPosts(String timeFilter) {
+        LocalDateTime cutoff = resolveCutoff(timeFilter);
+        List<Post> posts = postRepository.findFeedPage(cutoff != null ? cutoff : FEED_START, PageRequest.of(0, legacyMaxPosts));
+        logger.info("Retrieved {} posts (filter: {})", posts.size(), timeFilter);
+        return posts;
+    }
+
+    public Post getPost(Long id) {
+        return postRepository.findWithUserById(id).orElse(null);
+    }
+
+    // Newest admin broadcasts, see AdminController.injectPost
+    public List<Post> getBroadcasts(Integer limit) {
+        int size = limit == null ? maxBroadcasts : Math.max(1, Math.min(limit, maxBroadcasts));
+        return postRepository.findLatestWithPrefix(BROADCAST_PREFIX, PageRequest.of(0, size));
+    }
+
+    /**
+     * Keyset-paginated global feed, newest first. Each page costs one indexed range scan of at most
+     * {@code limit + 1} rows no matter how deep the client has scrolled.
+     */
+    public FeedPage<Post> getFeedPage(String cursor, Integer limit, String timeFilter) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        LocalDateTime cutoff = resolveCutoff(timeFilter);
+        if (cutoff == null) cutoff = FEED_START;
+        Pageable window = PageRequest.of(0, pageSize + 1);
+
+        List<Post> posts;
+        if (cursor != null && !cursor.isBlank()) {
+            FeedCursor position = FeedCursor.decode(cursor);
+            posts = postRepository.findFeedPageBefore(cutoff, position.getCreatedAt(), position.getId(), window);
+        } else {
+            posts = postRepository.findFeedPage(cutoff, window);
+        }
+
+        String nextCursor = null;
+        if (posts.size() > pageSize) {
+            posts = posts.subList(0, pageSize);
+            Post last = posts.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        logger.info("Retrieved feed page of {} posts (filter: {})", posts.size(), timeFilter);
+        return new FeedPage<>(posts, nextCursor);
+    }
+
+    /**
+     * A page after the first, i.e. with a cursor. Replica-eligible, the posts on it were already
+     * older than the ones the client has.
+     */
+    @ReplicaReads
+    public FeedPage<Post> getOlderFeedPage(String cursor, Integer limit, String timeFilter) {
+        return getFeedPage(cursor, limit, timeFilter);
+    }
+
+    private LocalDateTime resolveCutoff(String timeFilter) {
+        if (timeFilter == null) return null;
+        switch (timeFilter) {
+            case "today": return LocalDateTime.now().minusHours(24);
+            case "3days": return LocalDateTime.now().minusDays(3);
+            case "week": return LocalDateTime.now().minusWeeks(1);
+            case "month": return LocalDateTime.now().minusMonths(1);
+            default: return null;
+        }
+    }
+
+    public List<Post> getPostsByUser(String username) {
+        List<Post> posts = postRepository.findByUser_AnonymousNameOrderByCreatedAtDesc(username);
+        logger.info("Retrieved {} posts for user {}", posts.size(), username);
+        return posts;
+    }
+
+    public List<Post> getTopLikedPosts(int limit) {
+        List<Long> ids = postRankingService.getTopPostIds(limit);
+        Map<Long, Post> byId = new HashMap<>();
+        for (Post post : postRepository.findAllWithUserByIdIn(ids)) {
+            byId.put(post.getId(), post);
+        }
+        List<Post> posts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Post post = byId.get(id);
+            if (post != null) posts.add(post); // deleted since it was ranked
+        }
+        return posts;
+    }
+}
@@ -27,6 +27,9 @@ public class GroupService {
     @Autowired
     private WordFilterService wordFilterService;
 
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
     public SocialGroup createGroup(String email, String name, String description, boolean isPrivate) {
         if (wordFilterService.containsBannedWord(name) || wordFilterService.containsBannedWord(description)) {
             throw new IllegalArgumentException("Group details contain inappropriate language.");
@@ -51,6 +54,9 @@ public class GroupService {
         member.setUser(user);
         groupMemberRepository.save(member);
 
+        if (!isPrivate) {
+            responseCacheService.invalidate(ResponseCacheService.GROUPS);
+        }
         return savedGroup;
     }
 
@@ -0,0 +1,98 @@
+package com.anonymous.social.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects hashtag usage off the request path. Posting only tokenizes the content and bumps an
+ * in-memory per-tag delta; a scheduled flush turns everything gathered since the last run into a
+ * single batched upsert, so post creation never waits on (or contends for) hashtag rows.
+ */
+@Service
+public class HashtagIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashtagIngestionService.class);
+
+    private static final Pattern HASHTAG = Pattern.compile("#\\w+");
+
+    // MySQL upsert; the unique index on name resolves concurrent first uses of a tag
+    private static final String UPSERT_SQL =
+            "INSERT INTO hashtags (name, usage_count, last_used) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE usage_count = usage_count + VALUES(usage_count), last_used = VALUES(last_used)";
+
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TrendingHashtagService trendingHashtagService;
+
+    // Uses not yet written, per tag. merge/remove are atomic per key, so no increment is lost
+    // between a flush taking a tag's count and a concurrent post adding to it.
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    public void record(String content) {
+        forEachTag(content, tag -> {
+            pending.merge(tag, 1L, Long::sum);
+            trendingHashtagService.record(tag);
+        });
+    }
+
+    /**
+     * Calls {@code action} with every hashtag in {@code content}, without the leading '#'.
+     */
+    public static void forEachTag(String content, Consumer<String> action) {
+        if (content == null || content.indexOf('#') < 0) return;
+        Matcher matcher = HASHTAG.matcher(content);
+        while (matcher.find()) {
+            action.accept(content.substring(matcher.start() + 1, matcher.end()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hashtags.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<Map.Entry<String, Long>> batch = new ArrayList<>();
+        for (String tag : pending.keySet()) {
+            Long count = pending.remove(tag);
+            if (count != null) batch.add(Map.entry(tag, count));
+        }
+        // Same row order on every instance, so concurrent flushes can't deadlock on each other
+        batch.sort(Map.Entry.comparingByKey());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch, BATCH_SIZE, (ps, entry) -> {
+                ps.setString(1, entry.getKey());
+                ps.setLong(2, entry.getValue());
+                ps.setTimestamp(3, now);
+            });
+        } catch (RuntimeException e) {
+            // Keep the counts for the next run rather than dropping them
+            logger.warn("Hashtag flush of {} tags failed, retrying next run: {}", batch.size(), e.getMessage());
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Long::sum));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
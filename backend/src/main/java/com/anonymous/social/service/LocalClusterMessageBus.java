@@ -0,0 +1,47 @@
+package com.anonymous.social.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM stand-in for the cluster bus: every instance joined to the same hub name acts as a node,
+ * and frames are handed to the other nodes synchronously. Lets tests (or several contexts in one
+ * process) exercise multi-node fan-out without opening sockets.
+ */
+public class LocalClusterMessageBus implements ClusterMessageBus {
+
+    private static final Map<String, List<LocalClusterMessageBus>> HUBS = new ConcurrentHashMap<>();
+
+    private final String hub;
+    private final List<Consumer<Frame>> receivers = new CopyOnWriteArrayList<>();
+
+    public LocalClusterMessageBus(String hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start() {
+        HUBS.computeIfAbsent(hub, k -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void stop() {
+        List<LocalClusterMessageBus> nodes = HUBS.get(hub);
+        if (nodes != null) nodes.remove(this);
+    }
+
+    @Override
+    public void publish(Frame frame) {
+        for (LocalClusterMessageBus node : HUBS.getOrDefault(hub, List.of())) {
+            if (node != this) node.receivers.forEach(receiver -> receiver.accept(frame));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Frame> receiver) {
+        receivers.add(receiver);
+    }
+}
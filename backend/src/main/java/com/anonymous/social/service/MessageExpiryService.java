@@ -0,0 +1,202 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expires ephemeral chat messages in the background, so history reads only look at a flag. Messages
+ * due within {@code chat.expiry.horizon-minutes} wait in an in-memory {@link DelayQueue}; one worker
+ * thread takes whatever has come due, flags it in a single UPDATE per batch and tells each room on
+ * {@code /topic/group/{id}/update}: {@code {"expiredIds": [...], "message": "<placeholder>"}}.
+ *
+ * The queue is a per-node accelerator only. A periodic scan over idx_chat_expiry refills it from
+ * the table (after a restart, or for messages sent through other nodes) and flags anything already
+ * overdue directly. Rows are locked while flagged, so each expiry is announced exactly once.
+ *
+ * Expired text stays in the table for moderators; with {@code chat.expiry.purge-after-minutes} set,
+ * the scan overwrites it once that much time has passed since expiry.
+ */
+@Service
+public class MessageExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageExpiryService.class);
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${chat.expiry.horizon-minutes:60}")
+    private long horizonMinutes;
+
+    @Value("${chat.expiry.max-queued:100000}")
+    private int maxQueued;
+
+    @Value("${chat.expiry.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chat.expiry.purge-after-minutes:0}")
+    private long purgeAfterMinutes;
+
+    private static final class Due implements Delayed {
+        final Long messageId;
+        final long dueAtMs;
+
+        Due(Long messageId, long dueAtMs) {
+            this.messageId = messageId;
+            this.dueAtMs = dueAtMs;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMs, ((Due) other).dueAtMs);
+        }
+    }
+
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+    // Ids currently in the queue, so the scan doesn't add a message twice
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder purgedCount = new LongAdder();
+    private Thread worker;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::drainLoop, "message-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Queues a just-committed message for expiry. Messages beyond the horizon, or arriving while the
+     * queue is full, are left to the scan.
+     */
+    public void schedule(Long messageId, LocalDateTime expiresAt) {
+        long dueAtMs = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (dueAtMs > System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(horizonMinutes)) return;
+        if (queued.size() >= maxQueued || !queued.add(messageId)) return;
+        queue.add(new Due(messageId, dueAtMs));
+    }
+
+    private void drainLoop() {
+        while (running) {
+            List<Due> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (Due due : batch) {
+                queued.remove(due.messageId);
+                ids.add(due.messageId);
+            }
+            try {
+                expire(ids);
+            } catch (RuntimeException e) {
+                // Still unflagged in the table; the next scan picks them up
+                logger.warn("Expiring {} messages failed, leaving them to the scan: {}", ids.size(), e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.expiry.scan-interval-ms:30000}")
+    public void scan() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> upcoming;
+        do {
+            // Overdue rows come first (ordered by expiresAt); flag those now, queue the rest
+            upcoming = chatMessageRepository.findExpiringBefore(now.plusMinutes(horizonMinutes), PageRequest.of(0, batchSize));
+            List<Long> overdue = new ArrayList<>();
+            for (Object[] row : upcoming) {
+                LocalDateTime expiresAt = (LocalDateTime) row[1];
+                if (expiresAt.isAfter(now)) {
+                    schedule((Long) row[0], expiresAt);
+                } else {
+                    overdue.add((Long) row[0]);
+                }
+            }
+            if (overdue.isEmpty()) break;
+            expire(overdue);
+        } while (upcoming.size() == batchSize);
+
+        if (purgeAfterMinutes > 0) {
+            int purged = chatMessageRepository.purgeExpiredBefore(now.minusMinutes(purgeAfterMinutes), ChatMessageView.EXPIRED_TEXT);
+            purgedCount.add(purged);
+        }
+    }
+
+    /**
+     * Flags the given messages expired and announces the ones this call flipped, grouped by room.
+     */
+    void expire(Collection<Long> messageIds) {
+        List<Object[]> claimed = transactionTemplate.execute(status -> {
+            List<Object[]> rows = chatMessageRepository.lockUnexpired(messageIds);
+            if (!rows.isEmpty()) {
+                chatMessageRepository.markExpired(rows.stream().map(row -> ((Number) row[0]).longValue()).toList());
+            }
+            return rows;
+        });
+        if (claimed == null || claimed.isEmpty()) return;
+        expiredCount.add(claimed.size());
+
+        Map<Long, List<Long>> byGroup = new LinkedHashMap<>();
+        for (Object[] row : claimed) {
+            byGroup.computeIfAbsent(((Number) row[1]).longValue(), k -> new ArrayList<>()).add(((Number) row[0]).longValue());
+        }
+        byGroup.forEach((groupId, ids) -> messagingTemplate.convertAndSend("/topic/group/" + groupId + "/update",
+                Map.of("expiredIds", ids, "message", ChatMessageView.EXPIRED_TEXT)));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("expired", expiredCount.sum());
+        stats.put("purged", purgedCount.sum());
+        return stats;
+    }
+}
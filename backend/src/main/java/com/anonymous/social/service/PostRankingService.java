@@ -0,0 +1,233 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Continuously maintained "top liked" ranking. Holds the best {@code ranking.top-posts.capacity}
+ * posts by score (admin override if set, else stored like count) and moves them on every like
+ * event, so serving the top K is a walk over K entries instead of an aggregate over all posts.
+ *
+ * {@code floor} is an upper bound on the score of every post outside the buffer. A post whose score
+ * drops below it is evicted, and a buffer that shrinks under what callers ask for is reseeded from
+ * the database. Events are applied after commit; other instances' likes arrive with the periodic
+ * reseed. Posts whose score moves while a reseed's query runs are read again once the rebuilt buffer
+ * is in place, since the query may have missed their change.
+ */
+@Service
+public class PostRankingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostRankingService.class);
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${ranking.top-posts.capacity:100}")
+    private int capacity;
+
+    private static final class Entry implements Comparable<Entry> {
+        final long postId;
+        final int score;
+
+        Entry(long postId, int score) {
+            this.postId = postId;
+            this.score = score;
+        }
+
+        // Highest score first, newest post first among ties
+        @Override
+        public int compareTo(Entry other) {
+            if (score != other.score) return Integer.compare(other.score, score);
+            return Long.compare(other.postId, postId);
+        }
+    }
+
+    private final Map<Long, Integer> scores = new HashMap<>();
+    private final TreeSet<Entry> ranking = new TreeSet<>();
+    // -1 means the buffer holds every post
+    private int floor = -1;
+    private boolean seeded = false;
+    // One reseed at a time; held across its queries, so a lock rather than a monitor
+    private final ReentrantLock reseedLock = new ReentrantLock();
+    // Posts changed since the running reseed's query started; null when no reseed is running
+    private Set<Long> changedDuringReseed;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        int backfilled = postRepository.backfillEngagementCounts();
+        if (backfilled > 0) {
+            logger.info("Backfilled engagement counters for {} posts", backfilled);
+        }
+        reseed();
+    }
+
+    @Scheduled(fixedDelayString = "${ranking.top-posts.reseed-interval-ms:300000}",
+               initialDelayString = "${ranking.top-posts.reseed-interval-ms:300000}")
+    public void reseed() {
+        reseedLock.lock();
+        try {
+            synchronized (this) {
+                changedDuringReseed = new HashSet<>();
+            }
+            List<Object[]> rows = postRepository.findRankingCandidates(PageRequest.of(0, capacity + 1));
+            Set<Long> changed;
+            synchronized (this) {
+                scores.clear();
+                ranking.clear();
+                for (int i = 0; i < Math.min(rows.size(), capacity); i++) {
+                    put((Long) rows.get(i)[0], (Integer) rows.get(i)[1]);
+                }
+                floor = rows.size() > capacity ? (Integer) rows.get(capacity)[1] : -1;
+                seeded = true;
+                changed = changedDuringReseed;
+                changedDuringReseed = null;
+            }
+            // Their events were applied to the old buffer, and the query may predate their commits.
+            // Re-reading the score is safe either way, where replaying a like twice would not be.
+            for (Long postId : changed) {
+                Optional<Integer> score = postRepository.findRankingScore(postId);
+                synchronized (this) {
+                    remove(postId);
+                    score.ifPresent(value -> offer(postId, value));
+                }
+            }
+        } finally {
+            synchronized (this) {
+                changedDuringReseed = null;
+            }
+            reseedLock.unlock();
+        }
+    }
+
+    /**
+     * Ids of the top {@code limit} posts, best first.
+     */
+    public List<Long> getTopPostIds(int limit) {
+        synchronized (this) {
+            if (seeded && limit <= capacity && (floor < 0 || ranking.size() >= limit)) {
+                return firstIds(limit);
+            }
+        }
+        reseed();
+        synchronized (this) {
+            return firstIds(limit);
+        }
+    }
+
+    public void onLikesChanged(Long postId, int delta) {
+        afterCommit(() -> applyDelta(postId, delta));
+    }
+
+    public void onScoreSet(Long postId, int score) {
+        afterCommit(() -> offer(postId, score));
+    }
+
+    public void onPostCreated(Long postId) {
+        afterCommit(() -> offer(postId, 0));
+    }
+
+    public void onPostDeleted(Long postId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                changed(postId);
+                remove(postId);
+            }
+        });
+    }
+
+    private void applyDelta(Long postId, int delta) {
+        synchronized (this) {
+            changed(postId);
+            Integer current = scores.get(postId);
+            if (current != null) {
+                update(postId, Math.max(0, current + delta));
+                return;
+            }
+            // Outside the buffer the score is at most floor, so a decrement can't bring it in
+            if (delta <= 0 || floor < 0) return;
+        }
+        postRepository.findRankingScore(postId).ifPresent(score -> offer(postId, score));
+    }
+
+    private synchronized void offer(Long postId, int score) {
+        changed(postId);
+        if (scores.containsKey(postId)) {
+            update(postId, score);
+        } else if (score > floor || floor < 0) {
+            put(postId, score);
+            while (ranking.size() > capacity) {
+                Entry evicted = ranking.pollLast();
+                scores.remove(evicted.postId);
+                floor = Math.max(floor, evicted.score);
+            }
+        }
+    }
+
+    // Caller holds the monitor
+    private void changed(Long postId) {
+        if (changedDuringReseed != null) changedDuringReseed.add(postId);
+    }
+
+    private void update(Long postId, int score) {
+        remove(postId);
+        if (floor < 0 || score >= floor) {
+            put(postId, score);
+        }
+    }
+
+    private void put(Long postId, int score) {
+        scores.put(postId, score);
+        ranking.add(new Entry(postId, score));
+    }
+
+    private void remove(Long postId) {
+        Integer score = scores.remove(postId);
+        if (score != null) {
+            ranking.remove(new Entry(postId, score));
+        }
+    }
+
+    private List<Long> firstIds(int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Entry> it = ranking.iterator();
+        while (it.hasNext() && ids.size() < limit) {
+            ids.add(it.next().postId);
+        }
+        return ids;
+    }
+
+    // A rolled-back like must not move the ranking
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -32,11 +32,20 @@ public class PostService {
     private RepostRepository repostRepository;
 
     @Autowired
-    private HashtagRepository hashtagRepository;
+    private HashtagIngestionService hashtagIngestionService;
 
     @Autowired
     private WordFilterService wordFilterService;
 
+    @Autowired
+    private PostRankingService postRankingService;
+
+    @Autowired
+    private ResponseCacheService responseCacheService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
     public Post createPost(String email, String content, String theme) {
         logger.info("Creating post for user: {}", email);
         User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
@@ -50,6 +59,7 @@ public class PostService {
         if (banDuration > 0) {
             user.setBannedUntil(LocalDateTime.now().plusMinutes(banDuration));
             userRepository.save(user);
+            userDetailsService.evictAfterCommit(email);
             throw new IllegalArgumentException("Content contains banned words. You are banned for " + banDuration + " minutes.");
         }
 
@@ -58,100 +68,59 @@ public class PostService {
         post.setContent(content);
         post.setTheme(theme != null && !theme.isEmpty() ? theme : "General");
 
-        processHashtags(content);
-
-        return postRepository.save(post);
-    }
-
-    private void processHashtags(String content) {
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("#\\w+");
-        java.util.regex.Matcher matcher = pattern.matcher(content);
-        while (matcher.find()) {
-            String tag = matcher.group().substring(1); // remove #
-            Hashtag hashtag = hashtagRepository.findByName(tag)
-                    .orElse(new Hashtag(tag));
-            if (hashtag.getId() != null) {
-                hashtag.incrementUsage();
-            }
-            hashtagRepository.save(hashtag);
-        }
-    }
-
-    public List<Post> getAllPosts(String timeFilter) {
-        java.time.LocalDateTime cutoff = null;
-        if (timeFilter != null) {
-            switch (timeFilter) {
-                case "today": cutoff = LocalDateTime.now().minusHours(24); break;
-                case "3days": cutoff = LocalDateTime.now().minusDays(3); break;
-                case "week": cutoff = LocalDateTime.now().minusWeeks(1); break;
-                case "month": cutoff = LocalDateTime.now().minusMonths(1); break;
-            }
-        }
-
-        List<Post> posts;
-        if (cutoff != null) {
-            posts = postRepository.findAllByCreatedAtAfterOrderByCreatedAtDesc(cutoff);
-        } else {
-            posts = postRepository.findAllByOrderByCreatedAtDesc();
-        }
-        logger.info("Retrieved {} posts (filter: {})", posts.size(), timeFilter);
-        return posts;
-    }
-
-    public List<Post> getPostsByUser(String username) {
-        List<Post> posts = postRepository.findByUser_AnonymousNameOrderByCreatedAtDesc(username);
-        logger.info("Retrieved {} posts for user {}", posts.size(), username);
-        return posts;
-    }
-
-    public List<Post> getTopLikedPosts(int limit) {
-        return postRepository.findTopLikedPosts(org.springframework.data.domain.PageRequest.of(0, limit));
+        Post saved = postRepository.save(post);
+        hashtagIngestionService.record(content);
+        postRankingService.onPostCreated(saved.getId());
+        responseCacheService.invalidate(ResponseCacheService.POSTS);
+        responseCacheService.invalidate(ResponseCacheService.TOP_POSTS);
+        return saved;
     }
 
+    /**
+     * Toggles or switches the caller's reaction. Counters move through atomic UPDATEs rather than
+     * read-modify-write on loaded entities, so concurrent likes cannot lose increments; the
+     * unique (post_id, user_id) key rejects a duplicate like racing in from the same user.
+     */
+    @org.springframework.transaction.annotation.Transactional
     public void likePost(Long postId, String email, String reactionType) {
         User user = userRepository.findByEmail(email).orElseThrow();
-        Post post = postRepository.findById(postId).orElseThrow();
-        User author = post.getUser();
         String finalReactionStart = reactionType != null ? reactionType : "HEART";
 
-        java.util.Optional<PostLike> existingLikeOpt = postLikeRepository.findByPostAndUser(post, user);
-
-        if (existingLikeOpt.isPresent()) {
-             PostLike existing = existingLikeOpt.get();
-             if (existing.getReactionType().equals(finalReactionStart)) {
-                 // Toggle OFF
-                 postLikeRepository.delete(existing);
-                 // Decrement fake like count
-                 if (post.getFakeLikeCount() != null) {
-                     post.setFakeLikeCount(Math.max(0, post.getFakeLikeCount() - 1));
-                     postRepository.save(post);
+        List<Object[]> existing = postLikeRepository.findReaction(postId, user.getId());
+
+        if (!existing.isEmpty()) {
+             Long likeId = (Long) existing.get(0)[0];
+             if (finalReactionStart.equals(existing.get(0)[1])) {
+                 // Toggle OFF; only the request that actually removed the row adjusts the counters
+                 if (postLikeRepository.deleteLike(likeId) > 0) {
+                     postRepository.adjustLikeCounts(postId, -1);
+                     userRepository.adjustReputationOfPostAuthor(postId, -1);
+                     postRankingService.onLikesChanged(postId, -1);
                  }
-                 // Decrement reputation
-                 author.setReputationScore(author.getReputationScore() - 1);
-                 userRepository.save(author);
              } else {
                  // Change Reaction Type
-                 existing.setReactionType(finalReactionStart);
-                 postLikeRepository.save(existing);
+                 postLikeRepository.updateReactionType(likeId, finalReactionStart);
              }
         } else {
-            // New Reaction
+            // New Reaction; the counter update doubles as the existence check for the post
+            if (postRepository.adjustLikeCounts(postId, 1) == 0) {
+                throw new java.util.NoSuchElementException("Post not found: " + postId);
+            }
             PostLike like = new PostLike();
-            like.setPost(post);
+            like.setPost(postRepository.getReferenceById(postId));
             like.setUser(user);
             like.setReactionType(finalReactionStart);
             postLikeRepository.save(like);
-            // Increment fake like count
-            if (post.getFakeLikeCount() != null) {
-                post.setFakeLikeCount(post.getFakeLikeCount() + 1);
-                postRepository.save(post);
-            }
-            // Increment reputation
-            author.setReputationScore(author.getReputationScore() + 1);
-            userRepository.save(author);
+            userRepository.adjustReputationOfPostAuthor(postId, 1);
+            postRankingService.onLikesChanged(postId, 1);
         }
+
+        // Like lists are part of the cached feed JSON
+        responseCacheService.invalidate(ResponseCacheService.POSTS);
+        responseCacheService.invalidate(ResponseCacheService.TOP_POSTS);
     }
 
+    @org.springframework.transaction.annotation.Transactional
     public Comment addComment(Long postId, String email, String content) {
         User user = userRepository.findByEmail(email).orElseThrow();
         // Check if user is banned
@@ -164,18 +133,25 @@ public class PostService {
         if (banDuration > 0) {
             user.setBannedUntil(LocalDateTime.now().plusMinutes(banDuration));
             userRepository.save(user);
+            userDetailsService.evictAfterCommit(email);
             throw new IllegalArgumentException("Content contains banned words. You are banned for " + banDuration + " minutes.");
         }
-        Post post = postRepository.findById(postId).orElseThrow();
+        // The counter update doubles as the existence check, so the post itself is never loaded
+        if (postRepository.adjustCommentCount(postId, 1) == 0) {
+            throw new java.util.NoSuchElementException("Post not found: " + postId);
+        }
 
         Comment comment = new Comment();
-        comment.setPost(post);
+        comment.setPost(postRepository.getReferenceById(postId));
         comment.setUser(user);
         comment.setContent(content);
 
-        return commentRepository.save(comment);
+        Comment saved = commentRepository.save(comment);
+        responseCacheService.invalidate(ResponseCacheService.POSTS);
+        return saved;
     }
 
+    @org.springframework.transaction.annotation.Transactional
     public void repost(Long postId, String email) {
         User user = userRepository.findByEmail(email).orElseThrow();
         Post post = postRepository.findById(postId).orElseThrow();
@@ -185,6 +161,8 @@ public class PostService {
             repost.setPost(post);
             repost.setUser(user);
             repostRepository.save(repost);
+            postRepository.adjustRepostCount(postId, 1);
+            responseCacheService.invalidate(ResponseCacheService.POSTS);
         }
     }
 }
@@ -0,0 +1,371 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.config.ClusterFanoutInterceptor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Who is in which group chat right now. Sessions are tracked per group with a reference count per
+ * display name, so a user with two tabs open is present once and leaves only when both close.
+ *
+ * Changes are not broadcast one by one: a flush every {@code presence.flush-interval-ms} compares
+ * each changed group's members with what was last broadcast and sends one delta to
+ * /topic/group/{id}/active, as {@code {since, version, count, joined, left}}. A join cancelled by a
+ * leave in the same interval (a page reload) sends nothing. Clients load {@link #snapshot(Long)}
+ * once, then apply each delta whose {@code since} equals the version they hold, and reload the
+ * snapshot when it doesn't.
+ *
+ * With chat.broker.mode=bus a node only sees its own sessions. Nodes send each other the names in
+ * every room they host over the cluster bus, when the room changes and all of them every
+ * {@code presence.cluster.sync-interval-ms}; a node's room not refreshed for three intervals (node
+ * gone, frame lost) is dropped. Each node broadcasts deltas of the union to its own clients only,
+ * marked node-local so the fan-out doesn't mirror them: versions are per node. For the same reason
+ * clients load the snapshot over their socket, from the node whose deltas they receive.
+ */
+@Service
+public class PresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    public static final String DISPLAY_NAME_ATTRIBUTE = "presence.displayName";
+
+    // Bus destination for node-to-node room membership; not under /topic, so never reaches clients
+    static final String CLUSTER_DESTINATION = "/cluster/presence";
+
+    // Names per membership frame on the bus, well under the bus's frame size limit
+    private static final int MAX_NAMES_PER_FRAME = 2000;
+
+    private static final Map<String, Object> NODE_LOCAL = Map.of(ClusterFanoutInterceptor.NODE_LOCAL_HEADER, "true");
+
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @Autowired(required = false)
+    private ClusterMessageBus clusterMessageBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${presence.snapshot-max-users:200}")
+    private int snapshotMaxUsers;
+
+    @Value("${presence.cluster.sync-interval-ms:10000}")
+    private long syncIntervalMs;
+
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private static final class SessionPresence {
+        final String displayName;
+        final Set<Long> groups = ConcurrentHashMap.newKeySet();
+
+        SessionPresence(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    // Guarded by its own monitor; no I/O happens while it is held
+    private static final class GroupPresence {
+        // This node's sessions, insertion ordered so deltas list earlier joiners first
+        final Map<String, Integer> sessionsByName = new LinkedHashMap<>();
+        // What this node's clients were last sent
+        Set<String> published = Set.of();
+        long version = 0;
+        boolean removed = false;
+    }
+
+    private static final class RemoteRoom {
+        final Set<String> names;
+        final long refreshedAt;
+
+        RemoteRoom(Set<String> names, long refreshedAt) {
+            this.names = names;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, GroupPresence> groups = new ConcurrentHashMap<>();
+    // Group id -> node id -> that node's members of the group
+    private final Map<Long, Map<String, RemoteRoom>> remote = new ConcurrentHashMap<>();
+    // Groups whose members may have changed, to broadcast to clients
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    // Groups whose local sessions changed, to send to the other nodes
+    private final Set<Long> localDirty = ConcurrentHashMap.newKeySet();
+    // Shared by all groups, so a group that empties out and comes back never reuses a version
+    private final AtomicLong versions = new AtomicLong();
+    private long lastSyncAt;
+
+    @PostConstruct
+    public void init() {
+        if ("relay".equals(brokerMode)) {
+            throw new IllegalStateException("Presence is merged across nodes over the cluster bus, which "
+                    + "chat.broker.mode=relay doesn't have; use chat.broker.mode=bus");
+        }
+        if (clusterMessageBus != null) clusterMessageBus.subscribe(this::receive);
+    }
+
+    public boolean isKnownSession(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    /**
+     * @param displayName the session's name; may be null if the session is already known
+     */
+    public void join(String sessionId, String displayName, Long groupId) {
+        SessionPresence session = displayName != null
+                ? sessions.computeIfAbsent(sessionId, k -> new SessionPresence(displayName))
+                : sessions.get(sessionId);
+        if (session == null) return; // disconnected meanwhile
+        if (!session.groups.add(groupId)) return; // already subscribed from this session
+
+        while (true) {
+            GroupPresence group = groups.computeIfAbsent(groupId, k -> new GroupPresence());
+            synchronized (group) {
+                if (group.removed) continue; // flushed away as empty meanwhile; take the new entry
+                if (group.sessionsByName.merge(session.displayName, 1, Integer::sum) == 1) {
+                    localDirty.add(groupId);
+                    dirty.add(groupId);
+                }
+                return;
+            }
+        }
+    }
+
+    public void leave(String sessionId, Long groupId) {
+        SessionPresence session = sessions.get(sessionId);
+        if (session == null || !session.groups.remove(groupId)) return;
+        release(session.displayName, groupId);
+    }
+
+    public void disconnect(String sessionId) {
+        SessionPresence session = sessions.remove(sessionId);
+        if (session == null) return;
+        for (Long groupId : session.groups) {
+            release(session.displayName, groupId);
+        }
+    }
+
+    private void release(String displayName, Long groupId) {
+        GroupPresence group = groups.get(groupId);
+        if (group == null) return;
+        synchronized (group) {
+            if (group.sessionsByName.computeIfPresent(displayName, (k, n) -> n > 1 ? n - 1 : null) == null) {
+                localDirty.add(groupId);
+                dirty.add(groupId);
+            }
+        }
+    }
+
+    /** Members on all nodes, including changes not broadcast yet. */
+    public int getCount(Long groupId) {
+        GroupPresence group = groups.get(groupId);
+        if (group == null) return members(groupId, null).size();
+        synchronized (group) {
+            return members(groupId, group).size();
+        }
+    }
+
+    /**
+     * Members as last broadcast (at most {@code presence.snapshot-max-users} names) with the delta
+     * version they correspond to.
+     */
+    public Map<String, Object> snapshot(Long groupId) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        GroupPresence group = groups.get(groupId);
+        if (group == null) {
+            snapshot.put("version", 0L);
+            snapshot.put("count", 0);
+            snapshot.put("users", List.of());
+            return snapshot;
+        }
+        synchronized (group) {
+            List<String> users = new ArrayList<>();
+            for (String name : new TreeSet<>(group.published)) {
+                if (users.size() == snapshotMaxUsers) break;
+                users.add(name);
+            }
+            snapshot.put("version", group.version);
+            snapshot.put("count", group.published.size());
+            snapshot.put("users", users);
+        }
+        return snapshot;
+    }
+
+    // Local names first, then other nodes'; caller holds the group's monitor if there is a group
+    private Set<String> members(Long groupId, GroupPresence group) {
+        Set<String> names = group != null ? new LinkedHashSet<>(group.sessionsByName.keySet()) : new LinkedHashSet<>();
+        Map<String, RemoteRoom> rooms = remote.get(groupId);
+        if (rooms != null) {
+            for (RemoteRoom room : rooms.values()) names.addAll(room.names);
+        }
+        return names;
+    }
+
+    @Scheduled(fixedDelayString = "${presence.flush-interval-ms:500}")
+    public void flush() {
+        if (clusterMessageBus != null) {
+            long now = System.currentTimeMillis();
+            expireRemoteRooms(now);
+            publishLocalRooms(now);
+        }
+
+        for (Long groupId : dirty) {
+            dirty.remove(groupId);
+            Map<String, Object> delta = null;
+            while (true) {
+                // A group with members on other nodes only has no entry yet
+                GroupPresence group = remote.containsKey(groupId)
+                        ? groups.computeIfAbsent(groupId, k -> new GroupPresence())
+                        : groups.get(groupId);
+                if (group == null) break;
+                synchronized (group) {
+                    if (group.removed) continue;
+                    delta = diff(groupId, group);
+                    break;
+                }
+            }
+            if (delta == null) continue;
+            String destination = "/topic/group/" + groupId + "/active";
+            if (clusterMessageBus != null) {
+                messagingTemplate.convertAndSend(destination, delta, NODE_LOCAL);
+            } else {
+                messagingTemplate.convertAndSend(destination, delta);
+            }
+        }
+    }
+
+    // Delta from what was last broadcast to the current members, or null if nothing changed
+    private Map<String, Object> diff(Long groupId, GroupPresence group) {
+        Set<String> current = members(groupId, group);
+        List<String> joined = new ArrayList<>();
+        for (String name : current) {
+            if (!group.published.contains(name)) joined.add(name);
+        }
+        List<String> left = new ArrayList<>();
+        for (String name : group.published) {
+            if (!current.contains(name)) left.add(name);
+        }
+
+        Map<String, Object> delta = null;
+        if (!joined.isEmpty() || !left.isEmpty()) {
+            delta = new LinkedHashMap<>();
+            delta.put("since", group.version);
+            group.version = versions.incrementAndGet();
+            delta.put("version", group.version);
+            delta.put("count", current.size());
+            delta.put("joined", joined);
+            delta.put("left", left);
+            group.published = current;
+        }
+        if (current.isEmpty()) {
+            group.removed = true;
+            groups.remove(groupId, group);
+        }
+        return delta;
+    }
+
+    private void expireRemoteRooms(long now) {
+        for (Long groupId : remote.keySet()) {
+            remote.computeIfPresent(groupId, (id, rooms) -> {
+                if (rooms.values().removeIf(room -> now - room.refreshedAt > 3 * syncIntervalMs)) dirty.add(id);
+                return rooms.isEmpty() ? null : rooms;
+            });
+        }
+    }
+
+    // Changed rooms, or every room with local members once per sync interval
+    private void publishLocalRooms(long now) {
+        Set<Long> ids = new HashSet<>();
+        for (Long groupId : localDirty) {
+            localDirty.remove(groupId);
+            ids.add(groupId);
+        }
+        if (now - lastSyncAt >= syncIntervalMs) {
+            lastSyncAt = now;
+            ids.addAll(groups.keySet());
+        }
+
+        Map<Long, List<String>> rooms = new LinkedHashMap<>();
+        int names = 0;
+        for (Long groupId : ids) {
+            GroupPresence group = groups.get(groupId);
+            List<String> local = List.of();
+            if (group != null) {
+                synchronized (group) {
+                    local = new ArrayList<>(group.sessionsByName.keySet());
+                }
+            }
+            rooms.put(groupId, local);
+            names += local.size();
+            if (names >= MAX_NAMES_PER_FRAME) {
+                publish(rooms);
+                rooms = new LinkedHashMap<>();
+                names = 0;
+            }
+        }
+        if (!rooms.isEmpty()) publish(rooms);
+    }
+
+    private void publish(Map<Long, List<String>> rooms) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("node", nodeId);
+        frame.put("rooms", rooms);
+        try {
+            clusterMessageBus.publish(new ClusterMessageBus.Frame(CLUSTER_DESTINATION, "application/json",
+                    objectMapper.writeValueAsBytes(frame)));
+        } catch (IOException e) {
+            logger.warn("Could not publish presence to the cluster: {}", e.getMessage());
+        }
+    }
+
+    private void receive(ClusterMessageBus.Frame frame) {
+        if (!CLUSTER_DESTINATION.equals(frame.getDestination())) return;
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(frame.getPayload());
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable presence frame: {}", e.getMessage());
+            return;
+        }
+        String node = root.path("node").asText();
+        long now = System.currentTimeMillis();
+        root.path("rooms").fields().forEachRemaining(entry -> {
+            Set<String> names = new LinkedHashSet<>();
+            entry.getValue().forEach(name -> names.add(name.asText()));
+            applyRemote(Long.valueOf(entry.getKey()), node, names, now);
+        });
+    }
+
+    private void applyRemote(Long groupId, String node, Set<String> names, long now) {
+        remote.compute(groupId, (id, rooms) -> {
+            if (rooms == null) rooms = new ConcurrentHashMap<>();
+            RemoteRoom previous = names.isEmpty() ? rooms.remove(node) : rooms.put(node, new RemoteRoom(names, now));
+            if (previous == null ? !names.isEmpty() : !previous.names.equals(names)) dirty.add(id);
+            return rooms.isEmpty() ? null : rooms;
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.anonymous.social.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Short-TTL cache of rendered JSON for public endpoints whose response is the same for every
+ * caller. Entries hold the serialized bytes and their ETag, so a hit skips the database and
+ * Jackson alike, and a client presenting a matching If-None-Match gets a bodiless 304.
+ *
+ * Writes that change a cached listing call {@link #invalidate(String)}; the TTL bounds staleness
+ * for changes made through other instances.
+ */
+@Service
+public class ResponseCacheService {
+
+    public static final String POSTS = "posts";
+    public static final String TOP_POSTS = "topPosts";
+    public static final String TRENDING = "trending";
+    public static final String GROUPS = "groups";
+
+    private static final class CachedResponse {
+        final byte[] body;
+        final String etag;
+
+        CachedResponse(byte[] body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${response-cache.ttl-seconds:10}")
+    private long ttlSeconds;
+
+    @Value("${response-cache.max-entries:100}")
+    private long maxEntries;
+
+    private final Map<String, Cache<String, CachedResponse>> caches = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String name : new String[]{POSTS, TOP_POSTS, TRENDING, GROUPS}) {
+            caches.put(name, Caffeine.newBuilder()
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .maximumSize(maxEntries)
+                    .recordStats()
+                    .build());
+        }
+    }
+
+    /**
+     * Serves {@code key} from the named cache, rendering it with {@code loader} on a miss. Concurrent
+     * misses on the same key wait for a single load.
+     */
+    public ResponseEntity<byte[]> respond(String cacheName, String key, String ifNoneMatch, Supplier<?> loader) {
+        CachedResponse cached = caches.get(cacheName).get(key, k -> render(loader.get()));
+        if (ifNoneMatch != null && ifNoneMatch.contains(cached.etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(cached.etag)
+                .cacheControl(CacheControl.noCache())
+                .body(cached.body);
+    }
+
+    /**
+     * Drops every entry of the named cache now and, inside a transaction, once more after commit,
+     * so a miss that raced with the write can't keep serving the pre-commit state.
+     */
+    public void invalidate(String cacheName) {
+        Cache<String, CachedResponse> cache = caches.get(cacheName);
+        cache.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll();
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> {
+            CacheStats cacheStats = cache.stats();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("size", cache.estimatedSize());
+            entry.put("hits", cacheStats.hitCount());
+            entry.put("misses", cacheStats.missCount());
+            entry.put("evictions", cacheStats.evictionCount());
+            entry.put("hitRatio", cacheStats.hitRate());
+            stats.put(name, entry);
+        });
+        return stats;
+    }
+
+    private CachedResponse render(Object value) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            return new CachedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cached response", e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.anonymous.social.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cluster bus over plain TCP: every node listens on {@code port} and keeps one outbound connection
+ * per configured peer. Each peer has its own bounded queue and sender thread, so a slow or dead node
+ * only drops its own frames and never stalls the broker thread that published them. Connections
+ * open with a digest of the shared secret; a peer presenting anything else, or nothing within
+ * {@code HANDSHAKE_TIMEOUT_MS}, is disconnected. At most {@code MAX_INBOUND} connections are read at
+ * once, so whoever can reach the port can't tie up a thread per socket.
+ *
+ * Wire format per frame: UTF destination, UTF content type, int length, payload bytes.
+ */
+public class TcpClusterMessageBus implements ClusterMessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpClusterMessageBus.class);
+
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+    // Well above one connection per node, leaving room for reconnects while a dead socket is noticed
+    private static final int MAX_INBOUND = 64;
+
+    private final String bindAddress;
+    private final int port;
+    private final byte[] secretDigest;
+    private final List<Peer> peers = new ArrayList<>();
+    private final List<Consumer<Frame>> receivers = new CopyOnWriteArrayList<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private int handshakeTimeoutMs = HANDSHAKE_TIMEOUT_MS;
+    private int maxInbound = MAX_INBOUND;
+
+    public TcpClusterMessageBus(int port, List<String> peers, String secret, int queueCapacity) {
+        this(null, port, peers, secret, queueCapacity);
+    }
+
+    /**
+     * @param bindAddress interface to accept peers on; blank listens on all of them
+     * @param port        port to accept peers on; 0 picks a free one (see {@link #getLocalPort()})
+     * @param peers       the other nodes as {@code host:port}
+     * @param secret      shared by all nodes; required, anyone who can reach the port could publish otherwise
+     */
+    public TcpClusterMessageBus(String bindAddress, int port, List<String> peers, String secret, int queueCapacity) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("chat.broker.bus.secret must be set for the tcp cluster bus");
+        }
+        this.bindAddress = bindAddress == null || bindAddress.isBlank() ? null : bindAddress.trim();
+        this.port = port;
+        this.secretDigest = digest(secret);
+        for (String address : peers) {
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Cluster peer must be host:port, got: " + address);
+            }
+            this.peers.add(new Peer(address.substring(0, colon).trim(),
+                    Integer.parseInt(address.substring(colon + 1).trim()), queueCapacity));
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::acceptLoop, "cluster-bus-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        peers.forEach(Peer::start);
+        logger.info("Cluster bus listening on {} with {} peers", serverSocket.getLocalSocketAddress(), peers.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly(serverSocket);
+        peers.forEach(Peer::stop);
+        inbound.forEach(TcpClusterMessageBus::closeQuietly);
+    }
+
+    @Override
+    public void publish(Frame frame) {
+        for (Peer peer : peers) {
+            if (!peer.queue.offer(frame)) {
+                droppedFrames.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Frame> receiver) {
+        receivers.add(receiver);
+    }
+
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (inbound.size() >= maxInbound) {
+                    logger.warn("Refused cluster peer {}: {} connections already open", socket.getRemoteSocketAddress(), inbound.size());
+                    closeQuietly(socket);
+                    continue;
+                }
+                inbound.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket), "cluster-bus-read-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) logger.warn("Cluster bus accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setSoTimeout(handshakeTimeoutMs);
+            byte[] presented = new byte[in.readInt() == secretDigest.length ? secretDigest.length : 0];
+            in.readFully(presented);
+            if (!MessageDigest.isEqual(presented, secretDigest)) {
+                logger.warn("Rejected cluster peer {}: bad secret", socket.getRemoteSocketAddress());
+                return;
+            }
+            // A quiet cluster can go a long time between frames
+            socket.setSoTimeout(0);
+            while (running) {
+                String destination = in.readUTF();
+                String contentType = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+                    throw new IOException("Frame of " + length + " bytes exceeds limit");
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                Frame frame = new Frame(destination, contentType.isEmpty() ? null : contentType, payload);
+                for (Consumer<Frame> receiver : receivers) {
+                    try {
+                        receiver.accept(frame);
+                    } catch (RuntimeException e) {
+                        logger.warn("Cluster frame for {} not delivered: {}", destination, e.getMessage());
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // Peer closed the connection
+        } catch (IOException e) {
+            if (running) logger.warn("Cluster peer {} disconnected: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private final class Peer {
+        final String host;
+        final int port;
+        final BlockingQueue<Frame> queue;
+        Thread sender;
+        Socket socket;
+        DataOutputStream out;
+        long retryDelayMs = 0;
+        long nextAttemptAt = 0;
+
+        Peer(String host, int port, int queueCapacity) {
+            this.host = host;
+            this.port = port;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        void start() {
+            sender = new Thread(this::sendLoop, "cluster-bus-send-" + host + ":" + port);
+            sender.setDaemon(true);
+            sender.start();
+        }
+
+        void stop() {
+            if (sender != null) sender.interrupt();
+            closeQuietly(socket);
+        }
+
+        private void sendLoop() {
+            while (running) {
+                Frame frame;
+                try {
+                    frame = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // While the peer is down, shed frames instead of blocking on reconnects
+                if (out == null && System.currentTimeMillis() < nextAttemptAt) {
+                    droppedFrames.incrementAndGet();
+                    continue;
+                }
+                try {
+                    if (out == null) connect();
+                    write(frame);
+                    retryDelayMs = 0;
+                } catch (IOException e) {
+                    droppedFrames.incrementAndGet();
+                    closeQuietly(socket);
+                    out = null;
+                    retryDelayMs = Math.min(MAX_RETRY_DELAY_MS, Math.max(100, retryDelayMs * 2));
+                    nextAttemptAt = System.currentTimeMillis() + retryDelayMs;
+                    logger.debug("Cluster peer {}:{} unavailable, retrying in {} ms: {}", host, port, retryDelayMs, e.getMessage());
+                }
+            }
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(secretDigest.length);
+            out.write(secretDigest);
+        }
+
+        private void write(Frame frame) throws IOException {
+            out.writeUTF(frame.getDestination());
+            out.writeUTF(frame.getContentType() != null ? frame.getContentType() : "");
+            out.writeInt(frame.getPayload().length);
+            out.write(frame.getPayload());
+            // Frames queued behind this one go out in the same flush
+            if (queue.isEmpty()) out.flush();
+        }
+    }
+
+    private static byte[] digest(String secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
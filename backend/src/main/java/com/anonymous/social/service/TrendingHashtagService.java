@@ -0,0 +1,306 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.dto.TrendingHashtag;
+import com.anonymous.social.repository.HashtagRepository;
+import com.anonymous.social.repository.PostRepository;
+import com.anonymous.social.utils.CountMinSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sliding-window trending hashtags. Uses are counted exactly per minute for the last hour and per
+ * hour for the last week; once an hour closes, only its heaviest tags keep exact counts and the long
+ * tail is folded into a {@link CountMinSketch}, so memory stays bounded however many distinct tags
+ * appear. Each window is scored with exponential decay (half-life = window * half-life-fraction)
+ * and its top N is recomputed on a schedule, so reads are a map lookup.
+ *
+ * Counts are per instance and rebuilt from recent posts on startup.
+ */
+@Service
+public class TrendingHashtagService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingHashtagService.class);
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final int MINUTE_SLOTS = 60;
+    private static final int HOUR_SLOTS = 7 * 24;
+
+    public enum Window {
+        HOUR("1h", HOUR_MS),
+        DAY("24h", 24 * HOUR_MS),
+        WEEK("7d", HOUR_SLOTS * HOUR_MS);
+
+        private final String key;
+        private final long spanMs;
+
+        Window(String key, long spanMs) {
+            this.key = key;
+            this.spanMs = spanMs;
+        }
+
+        public static Window fromKey(String key) {
+            for (Window window : values()) {
+                if (window.key.equals(key)) return window;
+            }
+            throw new IllegalArgumentException("Unknown trending window: " + key + " (use 1h, 24h or 7d)");
+        }
+    }
+
+    // A closed hour: exact counts for its heavy hitters, the rest approximated. Immutable once built.
+    private static final class SealedHour {
+        final long hour;
+        final Map<String, Long> exact;
+        final CountMinSketch tail;
+
+        SealedHour(long hour, Map<String, Long> exact, CountMinSketch tail) {
+            this.hour = hour;
+            this.exact = exact;
+            this.tail = tail;
+        }
+    }
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Value("${trending.top-n:10}")
+    private int topN;
+
+    @Value("${trending.half-life-fraction:0.25}")
+    private double halfLifeFraction;
+
+    @Value("${trending.heavy-hitters:500}")
+    private int heavyHitters;
+
+    @Value("${trending.sketch.width:1024}")
+    private int sketchWidth;
+
+    @Value("${trending.sketch.depth:4}")
+    private int sketchDepth;
+
+    @Value("${trending.warmup-max-posts:5000}")
+    private int warmupMaxPosts;
+
+    private final Object lock = new Object();
+    @SuppressWarnings("unchecked")
+    private final Map<String, Long>[] minuteCounts = new Map[MINUTE_SLOTS];
+    private final long[] minuteOf = new long[MINUTE_SLOTS];
+    private final SealedHour[] sealedHours = new SealedHour[HOUR_SLOTS];
+    private long currentHour = -1;
+    private Map<String, Long> currentHourCounts = new HashMap<>();
+
+    private volatile Map<Window, List<TrendingHashtag>> cache = Collections.emptyMap();
+    // Set once recent posts have been replayed; from then on an empty window is a real answer
+    private volatile boolean warmedUp;
+    // Posts are served before the warm-up runs. Their uses wait here (tag, time) until the replay
+    // is done, so a live use can't move the open hour past the posts still to be replayed.
+    private List<Map.Entry<String, Long>> early = new ArrayList<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    public TrendingHashtagService() {
+        java.util.Arrays.fill(minuteOf, -1);
+    }
+
+    public void record(String tag) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            if (early != null) {
+                early.add(Map.entry(tag, now));
+                return;
+            }
+        }
+        record(tag, now);
+    }
+
+    void record(String tag, long now) {
+        long minute = now / MINUTE_MS;
+        synchronized (lock) {
+            if (now / HOUR_MS < currentHour) return; // that hour is already sealed
+            advance(now);
+            int slot = (int) (minute % MINUTE_SLOTS);
+            if (minuteOf[slot] > minute) return;
+            if (minuteOf[slot] != minute) {
+                minuteCounts[slot] = new HashMap<>();
+                minuteOf[slot] = minute;
+            }
+            minuteCounts[slot].merge(tag, 1L, Long::sum);
+            currentHourCounts.merge(tag, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Top tags for the window, best first. Falls back to all-time usage only until the startup
+     * warm-up has run; after that a quiet window is simply empty.
+     */
+    public List<TrendingHashtag> getTrending(String windowKey) {
+        List<TrendingHashtag> trending = cache.getOrDefault(Window.fromKey(windowKey), List.of());
+        if (warmedUp || !trending.isEmpty()) return trending;
+        return hashtagRepository.findTop10ByOrderByUsageCountDesc().stream()
+                .map(h -> new TrendingHashtag(h.getName(), h.getUsageCount(), h.getUsageCount()))
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDateTime since = LocalDateTime.now().minusDays(7);
+        List<Object[]> recent = List.of();
+        try {
+            recent = postRepository.findRecentContent(since, PageRequest.of(0, warmupMaxPosts));
+            // Oldest first, so hours seal in order as the replay moves forward
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                long at = ((LocalDateTime) recent.get(i)[1]).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                // Posted since startup: already waiting in the early uses
+                if (at >= startedAt) continue;
+                HashtagIngestionService.forEachTag((String) recent.get(i)[0], tag -> record(tag, at));
+            }
+        } finally {
+            synchronized (lock) {
+                for (Map.Entry<String, Long> use : early) {
+                    record(use.getKey(), use.getValue());
+                }
+                early = null;
+            }
+        }
+        refresh();
+        warmedUp = true;
+        logger.info("Trending hashtags warmed up from {} recent posts", recent.size());
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-interval-ms:15000}")
+    public void refresh() {
+        refresh(System.currentTimeMillis());
+    }
+
+    void refresh(long now) {
+        long nowMinute = now / MINUTE_MS;
+        long nowHour = now / HOUR_MS;
+
+        // Open buckets are copied under the lock; sealed hours are immutable and shared
+        List<Long> minuteKeys = new ArrayList<>();
+        List<Map<String, Long>> minuteMaps = new ArrayList<>();
+        List<SealedHour> hours = new ArrayList<>();
+        Map<String, Long> openHour;
+        synchronized (lock) {
+            advance(now);
+            for (int slot = 0; slot < MINUTE_SLOTS; slot++) {
+                if (minuteOf[slot] > nowMinute - MINUTE_SLOTS && minuteOf[slot] <= nowMinute) {
+                    minuteKeys.add(minuteOf[slot]);
+                    minuteMaps.add(new HashMap<>(minuteCounts[slot]));
+                }
+            }
+            for (SealedHour sealed : sealedHours) {
+                if (sealed != null && sealed.hour > nowHour - HOUR_SLOTS) hours.add(sealed);
+            }
+            openHour = currentHour == nowHour ? new HashMap<>(currentHourCounts) : Map.of();
+        }
+
+        Map<Window, List<TrendingHashtag>> next = new EnumMap<>(Window.class);
+
+        Map<String, double[]> hourWindow = new HashMap<>();
+        double minuteHalfLife = Window.HOUR.spanMs * halfLifeFraction;
+        for (int i = 0; i < minuteMaps.size(); i++) {
+            double weight = Math.pow(2, -((nowMinute - minuteKeys.get(i)) * MINUTE_MS) / minuteHalfLife);
+            accumulate(hourWindow, minuteMaps.get(i), weight);
+        }
+        next.put(Window.HOUR, top(hourWindow));
+
+        for (Window window : new Window[]{Window.DAY, Window.WEEK}) {
+            long spanHours = window.spanMs / HOUR_MS;
+            double halfLife = window.spanMs * halfLifeFraction;
+            Map<String, double[]> scores = new HashMap<>();
+            accumulate(scores, openHour, 1.0);
+            List<SealedHour> inWindow = new ArrayList<>();
+            for (SealedHour sealed : hours) {
+                if (sealed.hour <= nowHour - spanHours) continue;
+                inWindow.add(sealed);
+                accumulate(scores, sealed.exact, Math.pow(2, -((nowHour - sealed.hour) * HOUR_MS) / halfLife));
+            }
+            // Long-tail uses only matter for tags already near the top on exact counts
+            List<Map.Entry<String, double[]>> candidates = ranked(scores, topN * 4);
+            Map<String, double[]> refined = new HashMap<>();
+            for (Map.Entry<String, double[]> candidate : candidates) {
+                double[] value = candidate.getValue().clone();
+                for (SealedHour sealed : inWindow) {
+                    if (sealed.tail == null || sealed.exact.containsKey(candidate.getKey())) continue;
+                    long estimate = sealed.tail.estimate(candidate.getKey());
+                    value[0] += estimate * Math.pow(2, -((nowHour - sealed.hour) * HOUR_MS) / halfLife);
+                    value[1] += estimate;
+                }
+                refined.put(candidate.getKey(), value);
+            }
+            next.put(window, top(refined));
+        }
+
+        cache = next;
+    }
+
+    // Seals the open hour once the clock has moved past it; caller holds the lock
+    private void advance(long now) {
+        long hour = now / HOUR_MS;
+        if (currentHour == -1) {
+            currentHour = hour;
+        } else if (hour > currentHour) {
+            sealedHours[(int) (currentHour % HOUR_SLOTS)] = seal(currentHour, currentHourCounts);
+            currentHourCounts = new HashMap<>();
+            currentHour = hour;
+        }
+    }
+
+    private SealedHour seal(long hour, Map<String, Long> counts) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> exact = new HashMap<>();
+        CountMinSketch tail = entries.size() > heavyHitters ? new CountMinSketch(sketchWidth, sketchDepth) : null;
+        for (int i = 0; i < entries.size(); i++) {
+            if (i < heavyHitters) {
+                exact.put(entries.get(i).getKey(), entries.get(i).getValue());
+            } else {
+                tail.add(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+        return new SealedHour(hour, exact, tail);
+    }
+
+    // value[0] is the decayed score, value[1] the raw count
+    private static void accumulate(Map<String, double[]> scores, Map<String, Long> counts, double weight) {
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            double[] value = scores.computeIfAbsent(entry.getKey(), k -> new double[2]);
+            value[0] += entry.getValue() * weight;
+            value[1] += entry.getValue();
+        }
+    }
+
+    private static List<Map.Entry<String, double[]>> ranked(Map<String, double[]> scores, int limit) {
+        List<Map.Entry<String, double[]>> entries = new ArrayList<>(scores.entrySet());
+        entries.sort((a, b) -> Double.compare(b.getValue()[0], a.getValue()[0]));
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    private List<TrendingHashtag> top(Map<String, double[]> scores) {
+        List<TrendingHashtag> result = new ArrayList<>();
+        for (Map.Entry<String, double[]> entry : ranked(scores, topN)) {
+            result.add(new TrendingHashtag(entry.getKey(), Math.round(entry.getValue()[1]),
+                    Math.round(entry.getValue()[0] * 100) / 100.0));
+        }
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,143 @@
+package com.anonymous.social.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side typing indicators. Keystroke frames only update who is typing in which room; once per
+ * {@code typing.tick-ms} every room whose set of typers changed gets one frame with the whole list,
+ * {@code {"typers": [...names], "more": n}}. Outbound typing traffic is therefore bounded by the tick
+ * rate per room, however many members type or how fast.
+ *
+ * A typer disappears after {@code typing.ttl-ms} without a refresh, so a client that closes without
+ * sending "stopped typing" doesn't linger. Refreshes closer together than {@code typing.min-refresh-ms}
+ * are ignored.
+ *
+ * With several nodes each one only knows the typers connected to it, and its frames reach every
+ * node's clients. Frames therefore carry this node's id ({@code "node"}) and clients show the union
+ * of the latest list per node. A room with typers is resent every {@code typing.ttl-ms} even when
+ * unchanged, so clients can drop the list of a node that stopped sending (it went away).
+ */
+@Service
+public class TypingAggregator {
+
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @Value("${typing.ttl-ms:3000}")
+    private long ttlMs;
+
+    @Value("${typing.min-refresh-ms:1000}")
+    private long minRefreshMs;
+
+    @Value("${typing.max-names:5}")
+    private int maxNames;
+
+    private static final class Typer {
+        final String displayName;
+        final long refreshedAt;
+
+        Typer(String displayName, long refreshedAt) {
+            this.displayName = displayName;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    // Typers of one room by user key, insertion ordered so the frame lists earliest typers first
+    private static final class Room {
+        final Map<String, Typer> typers = new LinkedHashMap<>();
+        long sentAt;
+        boolean removed = false;
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public void onTyping(Long groupId, String userKey, String displayName, boolean typing) {
+        onTyping(groupId, userKey, displayName, typing, System.currentTimeMillis());
+    }
+
+    void onTyping(Long groupId, String userKey, String displayName, boolean typing, long now) {
+        if (typing) {
+            while (true) {
+                Room room = rooms.computeIfAbsent(groupId, k -> new Room());
+                synchronized (room) {
+                    if (room.removed) continue; // dropped as empty meanwhile; take the new entry
+                    Typer current = room.typers.get(userKey);
+                    if (current != null && now - current.refreshedAt < minRefreshMs) return;
+                    room.typers.put(userKey, new Typer(displayName, now));
+                    if (current == null) dirty.add(groupId);
+                    return;
+                }
+            }
+        } else {
+            Room room = rooms.get(groupId);
+            if (room == null) return;
+            synchronized (room) {
+                if (room.typers.remove(userKey) != null) dirty.add(groupId);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${typing.tick-ms:500}")
+    public void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    void tick(long now) {
+        for (Map.Entry<Long, Room> entry : rooms.entrySet()) {
+            Room room = entry.getValue();
+            synchronized (room) {
+                Iterator<Typer> it = room.typers.values().iterator();
+                while (it.hasNext()) {
+                    if (now - it.next().refreshedAt > ttlMs) {
+                        it.remove();
+                        dirty.add(entry.getKey());
+                    }
+                }
+                if (!room.typers.isEmpty() && now - room.sentAt >= ttlMs) dirty.add(entry.getKey());
+            }
+        }
+
+        for (Long groupId : dirty) {
+            dirty.remove(groupId);
+            Room room = rooms.get(groupId);
+            List<String> names = new ArrayList<>();
+            int total = 0;
+            if (room != null) {
+                synchronized (room) {
+                    room.sentAt = now;
+                    total = room.typers.size();
+                    for (Typer typer : room.typers.values()) {
+                        if (names.size() == maxNames) break;
+                        if (!names.contains(typer.displayName)) names.add(typer.displayName);
+                    }
+                    if (room.typers.isEmpty()) {
+                        // Marked first, so an onTyping that already holds this room retries on a fresh one
+                        room.removed = true;
+                        rooms.remove(groupId, room);
+                    }
+                }
+            }
+            Map<String, Object> frame = new LinkedHashMap<>();
+            frame.put("node", nodeId);
+            frame.put("typers", names);
+            frame.put("more", Math.max(0, total - names.size()));
+            messagingTemplate.convertAndSend("/topic/group/" + groupId + "/typing", frame);
+        }
+    }
+}
@@ -2,10 +2,18 @@ package com.anonymous.social.service;
 
 import com.anonymous.social.model.User;
 import com.anonymous.social.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
 
 @Service
 public class UserService {
@@ -13,6 +21,28 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${follow-counts.cache.ttl-seconds:30}")
+    private long followCountTtlSeconds;
+
+    @Value("${follow-counts.cache.max-entries:10000}")
+    private long followCountMaxEntries;
+
+    // Profile views count both sides of the follow graph; follows on this instance evict, the TTL covers the rest
+    private Cache<Long, Long> followersCounts;
+    private Cache<Long, Long> followingCounts;
+
+    @PostConstruct
+    public void init() {
+        followersCounts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(followCountTtlSeconds))
+                .maximumSize(followCountMaxEntries)
+                .build();
+        followingCounts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(followCountTtlSeconds))
+                .maximumSize(followCountMaxEntries)
+                .build();
+    }
+
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
@@ -26,30 +56,59 @@ public class UserService {
     @Transactional
     public void followUser(String followerEmail, Long followingId) {
         User follower = getUserByEmail(followerEmail);
-        User following = userRepository.findById(followingId)
-                .orElseThrow(() -> new IllegalArgumentException("User to follow not found"));
+        if (!userRepository.existsById(followingId)) {
+            throw new IllegalArgumentException("User to follow not found");
+        }
 
-        if (follower.getId().equals(following.getId())) {
+        if (follower.getId().equals(followingId)) {
             throw new IllegalArgumentException("You cannot follow yourself");
         }
 
-        follower.getFollowing().add(following);
-        userRepository.save(follower);
+        // Following twice is a no-op, as it was with the Set-backed mapping
+        userRepository.insertFollow(follower.getId(), followingId);
+        evictCounts(follower.getId(), followingId);
     }
 
     @Transactional
     public void unfollowUser(String followerEmail, Long followingId) {
         User follower = getUserByEmail(followerEmail);
-        User following = userRepository.findById(followingId)
-                .orElseThrow(() -> new IllegalArgumentException("User to unfollow not found"));
+        if (!userRepository.existsById(followingId)) {
+            throw new IllegalArgumentException("User to unfollow not found");
+        }
 
-        follower.getFollowing().remove(following);
-        userRepository.save(follower);
+        if (userRepository.deleteFollow(follower.getId(), followingId) > 0) {
+            evictCounts(follower.getId(), followingId);
+        }
     }
 
     public boolean isFollowing(String followerEmail, Long followingId) {
         User follower = getUserByEmail(followerEmail);
-        return follower.getFollowing().stream()
-                .anyMatch(u -> u.getId().equals(followingId));
+        return userRepository.countFollow(follower.getId(), followingId) > 0;
+    }
+
+    public long getFollowersCount(Long userId) {
+        return followersCounts.get(userId, userRepository::countFollowers);
+    }
+
+    public long getFollowingCount(Long userId) {
+        return followingCounts.get(userId, userRepository::countFollowing);
+    }
+
+    // Evicted now for reads later in this transaction, and again after commit, since a concurrent
+    // read in between would cache the old count
+    private void evictCounts(Long followerId, Long followingId) {
+        Runnable evict = () -> {
+            followingCounts.invalidate(followerId);
+            followersCounts.invalidate(followingId);
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
     }
 }
@@ -2,22 +2,35 @@ package com.anonymous.social.service;
 
 import com.anonymous.social.model.BannedWord;
 import com.anonymous.social.repository.BannedWordRepository;
+import com.anonymous.social.utils.AhoCorasickMatcher;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashSet;
-
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class WordFilterService {
 
+    private static final Logger logger = LoggerFactory.getLogger(WordFilterService.class);
+
     @Autowired
     private BannedWordRepository bannedWordRepository;
 
-    private java.util.Map<String, Integer> bannedWordsCache = new java.util.HashMap<>();
+    // Readers only ever dereference this; writers publish a fresh snapshot instead of mutating one
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    // Writers take turns, so each change compiles its automaton once and none is lost to a concurrent one
+    private final Object writeLock = new Object();
 
     @PostConstruct
     public void init() {
@@ -25,17 +38,39 @@ public class WordFilterService {
     }
 
     public void loadBannedWords() {
-        bannedWordsCache = bannedWordRepository.findAll().stream()
-                .collect(Collectors.toMap(
-                    word -> word.getWord().toLowerCase(),
-                    BannedWord::getBanDurationMinutes,
-                    (existing, replacement) -> existing
-                ));
-        // Add some default words if DB is empty
-        if (bannedWordsCache.isEmpty()) {
-            bannedWordsCache.put("badword", 5);
-            bannedWordsCache.put("abuse", 10);
-            bannedWordsCache.put("vulgar", 5);
+        // Under the write lock, so a slow reload cannot publish rows older than a newer edit or reload
+        synchronized (writeLock) {
+            String fingerprint = currentFingerprint();
+            Map<String, Integer> words = bannedWordRepository.findAll().stream()
+                    .collect(Collectors.toMap(
+                        word -> word.getWord().toLowerCase(),
+                        BannedWord::getBanDurationMinutes,
+                        (existing, replacement) -> existing
+                    ));
+            // Add some default words if DB is empty
+            if (words.isEmpty()) {
+                words.put("badword", 5);
+                words.put("abuse", 10);
+                words.put("vulgar", 5);
+            }
+            Snapshot loaded = publish(words, fingerprint);
+            logger.info("Loaded {} banned words (snapshot v{})", loaded.words.size(), loaded.version);
+        }
+    }
+
+    /**
+     * Cluster reload hook. Other instances add and remove words without telling us, so poll a cheap
+     * aggregate of the banned_words table and only re-read the rows when it has moved.
+     */
+    @Scheduled(fixedDelayString = "${moderation.banned-words.refresh-interval-ms:30000}",
+               initialDelayString = "${moderation.banned-words.refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
+        try {
+            if (!currentFingerprint().equals(snapshot.get().fingerprint)) {
+                loadBannedWords();
+            }
+        } catch (Exception e) {
+            logger.warn("Banned word refresh failed, keeping snapshot v{}: {}", snapshot.get().version, e.getMessage());
         }
     }
 
@@ -45,22 +80,60 @@ public class WordFilterService {
 
     public int getBanDuration(String content) {
         if (content == null || content.isEmpty()) return 0;
-        String lowerContent = content.toLowerCase();
-        int maxDuration = 0;
+        return snapshot.get().matcher.maxWeight(content.toLowerCase());
+    }
 
-        for (java.util.Map.Entry<String, Integer> entry : bannedWordsCache.entrySet()) {
-            if (lowerContent.contains(entry.getKey())) {
-                maxDuration = Math.max(maxDuration, entry.getValue());
-            }
-        }
-        return maxDuration;
+    public long getSnapshotVersion() {
+        return snapshot.get().version;
     }
 
     public void addBannedWord(String word, int duration) {
-        bannedWordsCache.put(word.toLowerCase(), duration);
+        edit(words -> words.put(word.toLowerCase(), duration));
     }
 
     public void removeBannedWord(String word) {
-        bannedWordsCache.remove(word.toLowerCase());
+        edit(words -> words.remove(word.toLowerCase()));
+    }
+
+    private void edit(Consumer<Map<String, Integer>> change) {
+        synchronized (writeLock) {
+            Map<String, Integer> words = new HashMap<>(snapshot.get().words);
+            change.accept(words);
+            // The local edit is already in the table, so the next poll re-reads once and settles
+            publish(words, null);
+        }
+    }
+
+    // The automaton is compiled before the snapshot is swapped in; readers keep the old one until then
+    private Snapshot publish(Map<String, Integer> words, String fingerprint) {
+        synchronized (writeLock) {
+            AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(words);
+            Snapshot next = new Snapshot(snapshot.get().version + 1, new HashMap<>(words), matcher, fingerprint);
+            snapshot.set(next);
+            return next;
+        }
+    }
+
+    private String currentFingerprint() {
+        List<Object[]> rows = bannedWordRepository.fingerprint();
+        Object[] row = rows.isEmpty() ? new Object[0] : rows.get(0);
+        return Arrays.toString(row);
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyMap(), AhoCorasickMatcher.compile(Collections.emptyMap()), null);
+
+        final long version;
+        final Map<String, Integer> words;
+        final AhoCorasickMatcher matcher;
+        final String fingerprint;
+
+        private Snapshot(long version, Map<String, Integer> words, AhoCorasickMatcher matcher, String fingerprint) {
+            this.version = version;
+            this.words = Collections.unmodifiableMap(words);
+            this.matcher = matcher;
+            this.fingerprint = fingerprint;
+        }
     }
 }
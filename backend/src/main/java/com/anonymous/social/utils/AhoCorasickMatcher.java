@@ -0,0 +1,134 @@
+package com.anonymous.social.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable Aho–Corasick automaton over a set of weighted patterns. {@link #maxWeight(String)} reports
+ * the largest weight of any pattern occurring in the text in a single left-to-right pass, independent
+ * of how many patterns were compiled in.
+ *
+ * Instances are safe to share between threads once built.
+ */
+public final class AhoCorasickMatcher {
+
+    private static final AhoCorasickMatcher EMPTY = compile(Map.of());
+
+    // Per-state outgoing edges, sorted by character for binary search
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    // Max weight of every pattern ending at this state, including those reachable through fail links
+    private final int[] output;
+
+    private AhoCorasickMatcher(char[][] edgeChars, int[][] edgeTargets, int[] fail, int[] output) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.output = output;
+    }
+
+    public static AhoCorasickMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the given pattern → weight map. Patterns are matched case-sensitively, so callers
+     * should normalize both patterns and text the same way.
+     */
+    public static AhoCorasickMatcher compile(Map<String, Integer> patterns) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        weights.add(0);
+
+        for (Map.Entry<String, Integer> entry : patterns.entrySet()) {
+            String pattern = entry.getKey();
+            if (pattern == null || pattern.isEmpty()) continue;
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = trie.get(state).get(pattern.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    weights.add(0);
+                    trie.get(state).put(pattern.charAt(i), next);
+                }
+                state = next;
+            }
+            weights.set(state, Math.max(weights.get(state), entry.getValue()));
+        }
+
+        int size = trie.size();
+        char[][] edgeChars = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            edgeChars[state] = new char[edges.size()];
+            edgeTargets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[state][i] = edge.getKey();
+                edgeTargets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first so every fail target is finalized before the states that point at it
+        int[] fail = new int[size];
+        int[] output = new int[size];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            output[target] = weights.get(target);
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+                int f = fail[state];
+                int next;
+                while ((next = step(edgeChars, edgeTargets, f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+                output[child] = Math.max(weights.get(child), output[fail[child]]);
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickMatcher(edgeChars, edgeTargets, fail, output);
+    }
+
+    /**
+     * Returns the highest weight of any pattern contained in {@code text}, or 0 if none match.
+     */
+    public int maxWeight(String text) {
+        if (text == null || text.isEmpty() || edgeChars[0].length == 0) return 0;
+        int state = 0;
+        int max = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(edgeChars, edgeTargets, state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            if (output[state] > max) {
+                max = output[state];
+            }
+        }
+        return max;
+    }
+
+    private static int step(char[][] edgeChars, int[][] edgeTargets, int state, char c) {
+        int index = Arrays.binarySearch(edgeChars[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+}
@@ -0,0 +1,250 @@
+package com.anonymous.social.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log split into segment files. Each record carries a caller-chosen key that
+ * only ever grows; once every record of a segment has been applied elsewhere, {@link #release(long)}
+ * deletes it. Records are framed as {@code [length][key][crc32][payload]}, so a record torn by a
+ * crash mid-write fails its check on replay and ends that segment.
+ *
+ * {@link #sync(long)} is a group commit: one fsync covers every record appended before it, and
+ * callers whose record is already covered return without forcing again.
+ *
+ * Segments found at open are left untouched for {@link #replay()}; new records go to a fresh one.
+ *
+ * Guarded by a {@link ReentrantLock} rather than a monitor: callers block on it around file writes and
+ * fsyncs, and a virtual thread parked on a monitor would keep its carrier thread.
+ */
+public final class AppendOnlyJournal implements Closeable {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SUFFIX = ".log";
+
+    private static final class Segment {
+        final Path path;
+        final long number;
+        long maxKey = Long.MIN_VALUE;
+
+        Segment(Path path, long number) {
+            this.path = path;
+            this.number = number;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Segment> replayed = new ArrayList<>();
+    // Closed segments still holding unreleased records, oldest first
+    private final Deque<Segment> closed = new ArrayDeque<>();
+    private Segment current;
+    private FileChannel channel;
+    private long currentSize;
+    // Bytes appended / known durable since open, across segments
+    private long appended;
+    private long synced;
+    private long syncCount;
+
+    public AppendOnlyJournal(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size must exceed the record header");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        long last = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList()) {
+                Segment segment = new Segment(path, segmentNumber(path));
+                replayed.add(segment);
+                last = Math.max(last, segment.number);
+            }
+        }
+        openSegment(last + 1);
+    }
+
+    /**
+     * Payloads of the segments present at open, in append order. A segment stops at its first
+     * incomplete or corrupt record.
+     */
+    public List<byte[]> replay() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (Segment segment : replayed) {
+            try (FileChannel in = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                while (true) {
+                    header.clear();
+                    if (readFully(in, header) < HEADER_BYTES) break;
+                    header.flip();
+                    int length = header.getInt();
+                    long key = header.getLong();
+                    int crc = header.getInt();
+                    if (length < 0 || length > in.size() - in.position()) break;
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    if (readFully(in, payload) < length || checksum(key, payload.array()) != crc) break;
+                    records.add(payload.array());
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Deletes the segments present at open, once their records have been applied.
+     */
+    public void discardReplayed() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : replayed) {
+                Files.deleteIfExists(segment.path);
+            }
+            replayed.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends one record and returns the position {@link #sync(long)} needs to make it durable.
+     */
+    public long append(long key, byte[] payload) throws IOException {
+        lock.lock();
+        try {
+            int size = HEADER_BYTES + payload.length;
+            if (currentSize > 0 && currentSize + size > segmentBytes) {
+                roll();
+            }
+            ByteBuffer record = ByteBuffer.allocate(size);
+            record.putInt(payload.length).putLong(key).putInt(checksum(key, payload)).put(payload).flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            current.maxKey = Math.max(current.maxKey, key);
+            currentSize += size;
+            appended += size;
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns once everything up to {@code position} is on disk.
+     */
+    public void sync(long position) throws IOException {
+        lock.lock();
+        try {
+            if (synced >= position) return;
+            channel.force(false);
+            synced = appended;
+            syncCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes closed segments whose records all have keys up to {@code key}.
+     */
+    public void release(long key) throws IOException {
+        lock.lock();
+        try {
+            while (!closed.isEmpty() && closed.peekFirst().maxKey <= key) {
+                Files.deleteIfExists(closed.pollFirst().path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSegmentCount() {
+        lock.lock();
+        try {
+            return replayed.size() + closed.size() + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return currentSize + closed.stream().mapToLong(segment -> segment.path.toFile().length()).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+            synced = appended;
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        // Everything in the old segment is durable before it is closed, so sync() only ever forces the current one
+        channel.force(false);
+        synced = appended;
+        channel.close();
+        closed.addLast(current);
+        openSegment(current.number + 1);
+    }
+
+    private void openSegment(long number) throws IOException {
+        current = new Segment(directory.resolve(String.format("segment-%019d%s", number, SUFFIX)), number);
+        channel = FileChannel.open(current.path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        currentSize = 0;
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static int readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) break;
+        }
+        return buffer.position();
+    }
+
+    private static int checksum(long key, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(key).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
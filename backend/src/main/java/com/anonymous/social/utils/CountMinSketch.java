@@ -0,0 +1,55 @@
+package com.anonymous.social.utils;
+
+/**
+ * Count-min sketch over string keys: fixed memory ({@code width * depth} counters) regardless of
+ * how many distinct keys are added. {@link #estimate(String)} never under-counts; it over-counts by
+ * at most {@code 2N / width} with probability {@code 1 - 2^-depth}, N being the total added.
+ *
+ * Not thread-safe; callers either confine an instance or stop writing before sharing it.
+ */
+public final class CountMinSketch {
+
+    private final int width;
+    private final long[][] table;
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Sketch width and depth must be positive");
+        }
+        this.width = width;
+        this.table = new long[depth][width];
+    }
+
+    public void add(String key, long count) {
+        int hash = key.hashCode();
+        for (int row = 0; row < table.length; row++) {
+            table[row][index(hash, row)] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(String key) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < table.length; row++) {
+            min = Math.min(min, table[row][index(hash, row)]);
+        }
+        return min;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Re-mixes the key hash with a per-row seed so rows behave as independent hash functions
+    private int index(int hash, int row) {
+        long h = (hash ^ (0x9E3779B97F4A7C15L * (row + 1)));
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) width);
+    }
+}
@@ -1,17 +1,25 @@
 package com.anonymous.social.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -21,9 +29,50 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secret;
 
+    // Comma-separated secrets that were current before the last rotation. Tokens they signed
+    // keep verifying until they expire; new tokens are always signed with jwt.secret.
+    @Value("${jwt.previous-secrets:}")
+    private String previousSecrets;
+
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Decoded once at startup; the parser is immutable and shared across threads
+    private Key signingKey;
+    private String signingKeyId;
+    private Map<String, Key> verificationKeys;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        signingKeyId = keyId(signingKey);
+
+        Map<String, Key> keys = new HashMap<>();
+        keys.put(signingKeyId, signingKey);
+        for (String previous : previousSecrets.split(",")) {
+            if (previous.isBlank()) continue;
+            Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(previous.trim()));
+            keys.putIfAbsent(keyId(key), key);
+        }
+        verificationKeys = Map.copyOf(keys);
+
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        // Tokens issued before key ids were added carry none; they were signed with the current secret
+                        if (header.getKeyId() == null) return signingKey;
+                        Key key = verificationKeys.get(header.getKeyId());
+                        if (key == null) {
+                            throw new SignatureException("Unknown signing key id: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -43,14 +92,25 @@ public class JwtUtil {
 
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies signature and expiry in a single parse and returns the claims authentication needs.
+     * Throws a {@link io.jsonwebtoken.JwtException} if the token is malformed, forged or expired.
+     */
+    public TokenClaims parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new TokenClaims(claims.getSubject(), claims.getExpiration(), claims.get("role", String.class),
+                claims.get("anonymousName", String.class));
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         final String username = extractUsername(token);
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
@@ -65,15 +125,35 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    // Short, non-reversible id for a key so verifiers can pick it without trying every secret
+    private static String keyId(Key key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public static final class TokenClaims {
+        private final String subject;
+        private final Date expiration;
+        private final String role;
+        private final String anonymousName;
+
+        public TokenClaims(String subject, Date expiration, String role, String anonymousName) {
+            this.subject = subject;
+            this.expiration = expiration;
+            this.role = role;
+            this.anonymousName = anonymousName;
+        }
+
+        public String getSubject() { return subject; }
+        public Date getExpiration() { return expiration; }
+        public String getRole() { return role; }
+        public String getAnonymousName() { return anonymousName; }
     }
 }
@@ -0,0 +1,146 @@
+package com.anonymous.social;
+
+import com.anonymous.social.dto.FeedPage;
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatQueryService;
+import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.CustomUserDetailsService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class ChatServiceIntegrationTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SocialGroupRepository groupRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Long groupId;
+
+    @BeforeEach
+    public void setup() {
+        // The user row of an earlier test was rolled back, its cached principal was not
+        userDetailsService.evict("chat@example.com");
+        User user = userRepository.findByEmail("chat@example.com").orElseGet(() -> {
+            User created = new User();
+            created.setEmail("chat@example.com");
+            created.setPassword("password");
+            created.setAnonymousName("ChatUser");
+            created.setCreatedAt(LocalDateTime.now());
+            return userRepository.save(created);
+        });
+
+        SocialGroup group = new SocialGroup();
+        group.setName("Chat Test Group");
+        group.setCreatedBy(user);
+        groupId = groupRepository.save(group).getId();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testSaveMessageStatementBudget() {
+        ChatMessageView question = chatService.saveMessage(groupId, "chat@example.com", "anyone?", null, null, null, null, null);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        ChatMessageView message = chatService.saveMessage(groupId, "chat@example.com", "hello", null, null, null, null, null);
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("TEST: saveMessage prepared " + statements + " statements");
+
+        assertEquals("hello", message.getMessage());
+        assertEquals("ChatUser", message.getUser().getAnonymousName());
+        // Just the insert: the sender comes from the principal cache, the group is referenced, not loaded
+        assertTrue(statements <= 1, "saveMessage prepared " + statements + " statements");
+
+        statistics.clear();
+        ChatMessageView reply = chatService.saveMessage(groupId, "chat@example.com", "me", question.getId(), null, null, null, null);
+        entityManager.flush();
+        statements = statistics.getPrepareStatementCount();
+        System.out.println("TEST: saveMessage with reply prepared " + statements + " statements");
+
+        assertEquals("anyone?", reply.getReplyTo().getMessage());
+        // The replied-to row, read once for the preview, and the insert
+        assertTrue(statements <= 2, "saveMessage with reply prepared " + statements + " statements");
+    }
+
+    @Test
+    public void testHistoryWindows() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            ids.add(chatService.saveMessage(groupId, "chat@example.com", "msg " + i, null, null, null, null, null).getId());
+        }
+
+        List<ChatMessageView> newest = chatQueryService.getGroupMessagesForUser(groupId, "chat@example.com", null, null, 2);
+        assertEquals(List.of(ids.get(3), ids.get(4)), newest.stream().map(ChatMessageView::getId).toList());
+
+        List<ChatMessageView> older = chatQueryService.getGroupMessagesForUser(groupId, "chat@example.com", ids.get(3), null, 2);
+        assertEquals(List.of(ids.get(1), ids.get(2)), older.stream().map(ChatMessageView::getId).toList());
+
+        FeedPage<ChatMessageView> delta = chatQueryService.getGroupMessagesSince(groupId, "chat@example.com", ids.get(2));
+        assertEquals(List.of(ids.get(3), ids.get(4)), delta.getItems().stream().map(ChatMessageView::getId).toList());
+        assertNull(delta.getNextCursor());
+    }
+
+    @Test
+    public void testHistoryPageQueriesIndependentOfSize() {
+        for (int i = 1; i <= 10; i++) {
+            ChatMessageView poll = chatService.saveMessage(groupId, "chat@example.com", null, null, "POLL", null,
+                    "Question " + i, new ArrayList<>(List.of("yes", "no")));
+            chatService.votePoll(poll.getId(), "chat@example.com", 1);
+            chatService.addReaction(poll.getId(), "chat@example.com", "🔥");
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        List<ChatMessageView> page = chatQueryService.getGroupMessagesForUser(groupId, "chat@example.com", null, null, 10);
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("TEST: history page prepared " + statements + " statements");
+
+        assertEquals(10, page.size());
+        for (ChatMessageView view : page) {
+            assertEquals(List.of("yes", "no"), view.getPollOptions());
+            assertEquals(List.of(0L, 1L), view.getPollTallies());
+            assertEquals(1L, view.getReactionCounts().get("🔥"));
+        }
+        // Viewer lookup, the page, reaction counts, poll tallies and one batch of poll options
+        assertTrue(statements <= 5, "history page prepared " + statements + " statements");
+    }
+}
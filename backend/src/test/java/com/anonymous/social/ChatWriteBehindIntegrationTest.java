@@ -0,0 +1,311 @@
+package com.anonymous.social;
+
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatQueryService;
+import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.ChatWriteBehindService;
+import com.anonymous.social.service.CustomUserDetailsService;
+import com.anonymous.social.utils.AppendOnlyJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Its own in-memory database and journal directory; not @Transactional, the writer inserts on its own thread
+@SpringBootTest(properties = {
+        "chat.write-behind.enabled=true",
+        "chat.write-behind.offer-timeout-ms=200",
+        "spring.datasource.hikari.allow-pool-suspension=true",
+        "spring.datasource.url=jdbc:h2:mem:writebehinddb;MODE=MySQL;DB_CLOSE_DELAY=-1"
+})
+public class ChatWriteBehindIntegrationTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("chat.write-behind.journal.dir", () -> journalDir.toString());
+    }
+
+    @Autowired
+    private ChatWriteBehindService chatWriteBehindService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SocialGroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<SocialGroup> groups = new ArrayList<>();
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = new User();
+        user.setEmail("writebehind@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("WriteBehindUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        for (int i = 0; i < 2; i++) {
+            SocialGroup group = new SocialGroup();
+            group.setName("Write-behind Group " + i);
+            group.setCreatedBy(user);
+            groups.add(groupRepository.save(group));
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        waitUntilSaved();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (SocialGroup group : groups) {
+                chatMessageRepository.unlinkRepliesByGroupId(group.getId());
+                chatMessageRepository.deleteByGroupId(group.getId());
+                groupRepository.deleteById(group.getId());
+            }
+        });
+        userRepository.deleteById(user.getId());
+        userDetailsService.evict(user.getEmail());
+    }
+
+    private ChatMessageView send(SocialGroup group, String text, Long replyToId) {
+        return chatService.saveMessage(group.getId(), user.getEmail(), text, replyToId, null, null, null, null);
+    }
+
+    private void waitUntilSaved() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(0).equals(chatWriteBehindService.getStats().get("unsaved"))) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Write-behind queue not drained within 5s");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testConcurrentSendsAreSavedInSendOrderPerRoom() throws Exception {
+        int senders = 4;
+        int perSender = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(senders);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        for (int s = 0; s < senders; s++) {
+            int sender = s;
+            results.add(pool.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < perSender; i++) {
+                    ids.add(send(groups.get(sender % 2), "s" + sender + "-" + i, null).getId());
+                }
+                return ids;
+            }));
+        }
+        for (Future<List<Long>> result : results) {
+            List<Long> ids = result.get(30, TimeUnit.SECONDS);
+            List<Long> sorted = new ArrayList<>(ids);
+            Collections.sort(sorted);
+            assertEquals(sorted, ids, "ids follow each sender's send order");
+        }
+        pool.shutdown();
+        waitUntilSaved();
+
+        for (int g = 0; g < 2; g++) {
+            List<ChatMessageView> history = chatQueryService.getGroupMessagesForUser(groups.get(g).getId(), user.getEmail(), null, null, 200);
+            assertEquals(senders / 2 * perSender, history.size());
+            // Each sender's messages come back in the order they were sent
+            Map<String, Integer> lastSeen = new LinkedHashMap<>();
+            for (ChatMessageView view : history) {
+                String[] parts = view.getMessage().split("-");
+                int index = Integer.parseInt(parts[1]);
+                assertTrue(lastSeen.getOrDefault(parts[0], -1) < index, view.getMessage() + " out of order");
+                lastSeen.put(parts[0], index);
+            }
+        }
+        assertTrue((Long) chatWriteBehindService.getStats().get("batches") >= 1);
+    }
+
+    @Test
+    public void testUnsavedMessagesCanBeRepliedToAndReactedTo() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Object original = ReflectionTestUtils.getField(chatWriteBehindService, "transactionTemplate");
+        // Holds the writer before its insert, so messages stay accepted but unsaved
+        ReflectionTestUtils.setField(chatWriteBehindService, "transactionTemplate", new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.execute(action);
+            }
+        });
+        try {
+            ChatMessageView question = send(groups.get(0), "anyone here?", null);
+            ChatMessageView answer = send(groups.get(0), "yes", question.getId());
+            assertEquals("anyone here?", answer.getReplyTo().getMessage());
+            assertTrue(chatMessageRepository.findById(question.getId()).isEmpty());
+
+            // Broadcast but unsaved: a reconnecting client's delta and the newest window still have both
+            List<Long> sent = List.of(question.getId(), answer.getId());
+            assertEquals(sent, chatQueryService.getGroupMessagesSince(groups.get(0).getId(), user.getEmail(), 0L)
+                    .getItems().stream().map(ChatMessageView::getId).toList());
+            assertEquals(List.of(answer.getId()), chatQueryService.getGroupMessagesSince(groups.get(0).getId(), user.getEmail(), question.getId())
+                    .getItems().stream().map(ChatMessageView::getId).toList());
+            assertEquals(sent, chatQueryService.getGroupMessagesForUser(groups.get(0).getId(), user.getEmail(), null, null, null)
+                    .stream().map(ChatMessageView::getId).toList());
+            assertTrue(chatQueryService.getGroupMessagesForUser(groups.get(1).getId(), user.getEmail(), null, null, null).isEmpty());
+
+            // Queue full: senders are refused after offer-timeout-ms instead of piling up
+            Semaphore capacity = (Semaphore) ReflectionTestUtils.getField(chatWriteBehindService, "capacity");
+            int free = capacity.drainPermits();
+            try {
+                assertThrows(IllegalArgumentException.class, () -> send(groups.get(1), "too many", null));
+            } finally {
+                capacity.release(free);
+            }
+
+            CompletableFuture<ChatMessageView> reaction = CompletableFuture.supplyAsync(() -> {
+                chatWriteBehindService.awaitPersisted(question.getId());
+                return chatService.addReaction(question.getId(), user.getEmail(), "👍");
+            });
+            release.countDown();
+            assertEquals(1L, reaction.get(10, TimeUnit.SECONDS).getReactionCounts().get("👍"));
+
+            GroupChatMessage saved = chatMessageRepository.findById(answer.getId()).orElseThrow();
+            assertEquals(question.getId(), saved.getReplyTo().getId());
+        } finally {
+            release.countDown();
+            ReflectionTestUtils.setField(chatWriteBehindService, "transactionTemplate", original);
+        }
+    }
+
+    @Test
+    public void testSendsWhileTheDatabaseIsUnavailable() throws Exception {
+        // The sender authenticated before the outage, so its principal is cached
+        userDetailsService.loadPrincipal(user.getEmail());
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        // A suspended pool that throws on checkout is what every send sees with the database gone
+        System.setProperty("com.zaxxer.hikari.throwIfSuspended", "true");
+        pool.suspendPool();
+        try {
+            assertThrows(SQLException.class, () -> dataSource.getConnection().close());
+            ChatMessageView first = send(groups.get(0), "anyone still there?", null);
+            ChatMessageView second = send(groups.get(0), "the database is down", first.getId());
+            assertEquals("anyone still there?", second.getReplyTo().getMessage());
+        } finally {
+            pool.resumePool();
+            System.clearProperty("com.zaxxer.hikari.throwIfSuspended");
+        }
+
+        waitUntilSaved();
+        assertEquals(List.of("anyone still there?", "the database is down"),
+                chatQueryService.getGroupMessagesForUser(groups.get(0).getId(), user.getEmail(), null, null, 50)
+                        .stream().map(ChatMessageView::getMessage).toList());
+    }
+
+    @Test
+    public void testJournalReplayInsertsMissingMessagesOnce(@TempDir Path crashed) throws Exception {
+        ChatMessageView existing = send(groups.get(0), "already saved", null);
+        waitUntilSaved();
+
+        long lostId = existing.getId() + 1000;
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(crashed, 1 << 20)) {
+            journal.append(existing.getId(), objectMapper.writeValueAsBytes(entry(existing.getId(), "already saved")));
+            journal.append(lostId, objectMapper.writeValueAsBytes(entry(lostId, "sent just before the crash")));
+        }
+
+        try (AppendOnlyJournal reopened = new AppendOnlyJournal(crashed, 1 << 20)) {
+            ReflectionTestUtils.invokeMethod(chatWriteBehindService, "recover", reopened);
+        }
+
+        GroupChatMessage recovered = chatMessageRepository.findById(lostId).orElseThrow();
+        assertEquals("sent just before the crash", recovered.getMessage());
+        assertEquals(2, chatQueryService.getGroupMessagesForUser(groups.get(0).getId(), user.getEmail(), null, null, 50).size());
+        // Replayed segments are gone once applied
+        try (AppendOnlyJournal again = new AppendOnlyJournal(crashed, 1 << 20)) {
+            assertTrue(again.replay().isEmpty());
+        }
+        assertNotNull(chatWriteBehindService.getStats().get("recovered"));
+    }
+
+    @Test
+    public void testRefusesToStartWithAMultiNodeBroker() {
+        ChatWriteBehindService service = new ChatWriteBehindService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "brokerMode", "bus");
+        ReflectionTestUtils.setField(service, "journalDir", journalDir.resolve("bus").toString());
+        assertThrows(IllegalStateException.class, service::start);
+    }
+
+    private Map<String, Object> entry(long id, String text) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("id", id);
+        entry.put("groupId", groups.get(0).getId());
+        entry.put("userId", user.getId());
+        entry.put("message", text);
+        entry.put("type", GroupChatMessage.MessageType.TEXT.name());
+        entry.put("createdAt", LocalDateTime.now());
+        return entry;
+    }
+}
@@ -0,0 +1,129 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.EmailOutbox;
+import com.anonymous.social.repository.EmailOutboxRepository;
+import com.anonymous.social.service.EmailOutboxService;
+import com.anonymous.social.service.EmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: rows are handed to the mail workers after commit
+@SpringBootTest
+public class EmailOutboxIntegrationTest {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    private FakeSmtpServer smtp;
+    private Object originalMailSender;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        smtp = new FakeSmtpServer();
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(smtp.getPort());
+        originalMailSender = ReflectionTestUtils.getField(emailService, "mailSender");
+        ReflectionTestUtils.setField(emailService, "mailSender", sender);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        ReflectionTestUtils.setField(emailService, "mailSender", originalMailSender);
+        smtp.close();
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    public void testOtpIsDeliveredOffTheCallerThread() throws Exception {
+        emailOutboxService.sendOtp("outbox@example.com", "424242");
+
+        waitFor(() -> !smtp.getMessages().isEmpty());
+        String mail = smtp.getMessages().get(0);
+        assertTrue(mail.contains("To: outbox@example.com"));
+        assertTrue(mail.contains("424242"));
+        waitFor(() -> EmailOutbox.SENT.equals(emailOutboxRepository.findAll().get(0).getStatus()));
+    }
+
+    @Test
+    public void testTransientFailureIsRetriedWithBackoff() throws Exception {
+        smtp.failNext(1);
+
+        emailOutboxService.sendOtp("retry@example.com", "135790");
+
+        waitFor(() -> emailOutboxRepository.findAll().get(0).getAttempts() == 1);
+        EmailOutbox afterFailure = emailOutboxRepository.findAll().get(0);
+        assertEquals(EmailOutbox.PENDING, afterFailure.getStatus());
+        assertTrue(afterFailure.getLastError().contains("451"));
+        assertTrue(afterFailure.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(4)));
+        assertTrue(smtp.getMessages().isEmpty());
+
+        // Skip the backoff wait and let the poller pick the row up again
+        afterFailure.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        emailOutboxRepository.save(afterFailure);
+        emailOutboxService.poll();
+
+        waitFor(() -> EmailOutbox.SENT.equals(emailOutboxRepository.findAll().get(0).getStatus()));
+        assertEquals(2, emailOutboxRepository.findAll().get(0).getAttempts());
+        assertTrue(smtp.getMessages().get(0).contains("135790"));
+    }
+
+    @Test
+    public void testNewerOtpSupersedesPendingRetry() throws Exception {
+        smtp.failNext(1);
+
+        emailOutboxService.sendOtp("twice@example.com", "111111");
+        waitFor(() -> emailOutboxRepository.findAll().get(0).getAttempts() == 1);
+
+        // The first code is waiting out its backoff when the user asks again
+        emailOutboxService.sendOtp("twice@example.com", "222222");
+
+        waitFor(() -> EmailOutbox.SENT.equals(emailOutboxRepository.findAll().get(0).getStatus()));
+        assertEquals(1, emailOutboxRepository.count());
+        assertEquals("222222", emailOutboxRepository.findAll().get(0).getPayload());
+        assertEquals(1, smtp.getMessages().size());
+        assertTrue(smtp.getMessages().get(0).contains("222222"));
+    }
+
+    @Test
+    public void testFailedRowsArePurgedAfterRetention() {
+        EmailOutbox failed = new EmailOutbox("gone@example.com", EmailOutboxService.KIND_OTP, "999999");
+        failed.setStatus(EmailOutbox.FAILED);
+        failed.setNextAttemptAt(LocalDateTime.now().minusHours(25));
+        EmailOutbox recent = new EmailOutbox("recent@example.com", EmailOutboxService.KIND_OTP, "888888");
+        recent.setStatus(EmailOutbox.FAILED);
+        recent.setNextAttemptAt(LocalDateTime.now().minusHours(1));
+        emailOutboxRepository.save(failed);
+        emailOutboxRepository.save(recent);
+
+        emailOutboxService.poll();
+
+        assertEquals(1, emailOutboxRepository.count());
+        assertEquals("recent@example.com", emailOutboxRepository.findAll().get(0).getRecipient());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Condition not met within 5s");
+            Thread.sleep(20);
+        }
+    }
+}
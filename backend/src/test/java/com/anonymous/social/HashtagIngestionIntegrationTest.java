@@ -0,0 +1,43 @@
+package com.anonymous.social;
+
+import com.anonymous.social.repository.HashtagRepository;
+import com.anonymous.social.service.HashtagIngestionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class HashtagIngestionIntegrationTest {
+
+    @Autowired
+    private HashtagIngestionService hashtagIngestionService;
+
+    @Autowired
+    private HashtagRepository hashtagRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    public void testDeltasAreCoalescedAndUpserted() {
+        hashtagIngestionService.record("first #ingestA and #ingestA again, plus #ingestB");
+        hashtagIngestionService.record("no tags here");
+        hashtagIngestionService.flush();
+
+        assertEquals(2L, hashtagRepository.findByName("ingestA").orElseThrow().getUsageCount());
+        assertEquals(1L, hashtagRepository.findByName("ingestB").orElseThrow().getUsageCount());
+
+        hashtagIngestionService.record("#ingestB returns");
+        hashtagIngestionService.flush();
+        entityManager.clear(); // the upsert bypasses the persistence context
+
+        assertEquals(2L, hashtagRepository.findByName("ingestB").orElseThrow().getUsageCount());
+        assertTrue(hashtagRepository.findByName("ingestA").orElseThrow().getLastUsed() != null);
+    }
+}
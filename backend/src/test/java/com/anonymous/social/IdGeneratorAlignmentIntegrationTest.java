@@ -0,0 +1,68 @@
+package com.anonymous.social;
+
+import com.anonymous.social.config.IdGeneratorAlignment;
+import com.anonymous.social.model.Post;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.PostRepository;
+import com.anonymous.social.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: alignment runs on its own connection and must see the committed rows
+@SpringBootTest
+public class IdGeneratorAlignmentIntegrationTest {
+
+    @Autowired
+    private IdGeneratorAlignment idGeneratorAlignment;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private User user;
+    private Post post;
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("DELETE FROM likes WHERE id = 100000");
+        if (post != null) postRepository.deleteById(post.getId());
+        if (user != null) userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    public void testGeneratorRowMovesPastRowsInsertedWithOldIds() {
+        user = new User();
+        user.setEmail("ids@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("IdsUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+        post = new Post();
+        post.setUser(user);
+        post.setContent("legacy likes");
+        post = postRepository.save(post);
+
+        // A like numbered by the old AUTO_INCREMENT column, and a generator row that never saw it
+        jdbcTemplate.update("INSERT INTO likes (id, post_id, user_id, reaction_type) VALUES (100000, ?, ?, 'HEART')",
+                post.getId(), user.getId());
+        jdbcTemplate.update("UPDATE id_generators SET next_val = 1 WHERE sequence_name = 'likes'");
+
+        idGeneratorAlignment.align();
+
+        Long nextVal = jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE sequence_name = 'likes'", Long.class);
+        // The first pooled block, (next_val - 50, next_val], lies entirely above the existing id
+        assertTrue(nextVal - 50 >= 100000, "next_val " + nextVal);
+    }
+}
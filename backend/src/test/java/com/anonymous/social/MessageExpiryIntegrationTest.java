@@ -0,0 +1,155 @@
+package com.anonymous.social;
+
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.model.GroupChatMessage;
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatQueryService;
+import com.anonymous.social.service.MessageExpiryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: the expiry worker only sees committed rows
+@SpringBootTest
+public class MessageExpiryIntegrationTest {
+
+    @Autowired
+    private MessageExpiryService messageExpiryService;
+
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SocialGroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<Object> payloads = new ArrayList<>();
+    private final List<Long> messageIds = new ArrayList<>();
+    private Object originalTemplate;
+    private User user;
+    private SocialGroup group;
+
+    @BeforeEach
+    public void setup() {
+        originalTemplate = ReflectionTestUtils.getField(messageExpiryService, "messagingTemplate");
+        ReflectionTestUtils.setField(messageExpiryService, "messagingTemplate", new SimpMessagingTemplate((m, t) -> true) {
+            @Override
+            public void convertAndSend(String destination, Object payload) {
+                synchronized (sent) {
+                    sent.add(destination);
+                    payloads.add(payload);
+                }
+            }
+        });
+
+        user = new User();
+        user.setEmail("expiry@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("ExpiryUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        group = new SocialGroup();
+        group.setName("Expiry Test Group");
+        group.setCreatedBy(user);
+        group = groupRepository.save(group);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        ReflectionTestUtils.setField(messageExpiryService, "messagingTemplate", originalTemplate);
+        ReflectionTestUtils.setField(messageExpiryService, "purgeAfterMinutes", 0L);
+        chatMessageRepository.deleteAllById(messageIds);
+        groupRepository.deleteById(group.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    private GroupChatMessage createMessage(String text, LocalDateTime expiresAt) {
+        GroupChatMessage message = new GroupChatMessage();
+        message.setGroup(group);
+        message.setUser(user);
+        message.setMessage(text);
+        message.setExpiresAt(expiresAt);
+        message = chatMessageRepository.save(message);
+        messageIds.add(message.getId());
+        return message;
+    }
+
+    @Test
+    public void testQueuedMessageExpiresOnTimeAndIsAnnouncedOnce() throws Exception {
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(300_000_000);
+        GroupChatMessage message = createMessage("self-destruct", expiresAt);
+        messageExpiryService.schedule(message.getId(), expiresAt);
+
+        String topic = "/topic/group/" + group.getId() + "/update";
+        waitFor(() -> chatMessageRepository.findById(message.getId()).orElseThrow().isExpired());
+        // The announcement goes out just after the flag is committed
+        waitFor(() -> {
+            synchronized (sent) {
+                return sent.contains(topic);
+            }
+        });
+        // A later scan finds nothing left to do for it
+        messageExpiryService.scan();
+
+        synchronized (sent) {
+            assertEquals(1, sent.stream().filter(topic::equals).count());
+            Map<?, ?> event = (Map<?, ?>) payloads.get(sent.indexOf(topic));
+            assertEquals(List.of(message.getId()), event.get("expiredIds"));
+            assertEquals(ChatMessageView.EXPIRED_TEXT, event.get("message"));
+        }
+
+        List<ChatMessageView> history = chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, null);
+        assertEquals(ChatMessageView.EXPIRED_TEXT, history.get(0).getMessage());
+        assertTrue(history.get(0).isExpired());
+        // Only the flag changed; the text is kept for moderators
+        assertEquals("self-destruct", chatMessageRepository.findById(message.getId()).orElseThrow().getMessage());
+    }
+
+    @Test
+    public void testScanExpiresOverdueMessagesAndPurgesOldText() {
+        GroupChatMessage overdue = createMessage("long gone", LocalDateTime.now().minusHours(2));
+        GroupChatMessage live = createMessage("still here", LocalDateTime.now().plusDays(1));
+        ReflectionTestUtils.setField(messageExpiryService, "purgeAfterMinutes", 60L);
+
+        messageExpiryService.scan();
+
+        GroupChatMessage expired = chatMessageRepository.findById(overdue.getId()).orElseThrow();
+        assertTrue(expired.isExpired());
+        assertEquals(ChatMessageView.EXPIRED_TEXT, expired.getMessage());
+        GroupChatMessage untouched = chatMessageRepository.findById(live.getId()).orElseThrow();
+        assertTrue(!untouched.isExpired());
+        assertEquals("still here", untouched.getMessage());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Condition not met within 5s");
+            Thread.sleep(20);
+        }
+    }
+}
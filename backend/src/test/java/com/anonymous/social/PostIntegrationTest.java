@@ -18,6 +18,7 @@ import java.time.LocalDateTime;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -69,4 +70,83 @@ public class PostIntegrationTest {
                 // Verify the latest post is the one we just created (assuming it's at the top due to sorting)
                 .andExpect(jsonPath("$[0].content").value(content));
     }
+
+    @Test
+    @WithMockUser(username = "test@example.com", password = "password")
+    public void testFeedETagRevalidationAndInvalidation() throws Exception {
+        String etag = mockMvc.perform(get("/api/posts"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Unchanged feed: the client's copy is still good
+        mockMvc.perform(get("/api/posts").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        String content = "Cache Invalidation Post " + System.currentTimeMillis();
+        mockMvc.perform(post("/api/posts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"content\": \"" + content + "\"}"))
+                .andExpect(status().isOk());
+
+        // A new post drops the cached feed, so the old ETag no longer matches
+        mockMvc.perform(get("/api/posts").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content").value(content));
+    }
+
+    @Test
+    @WithMockUser(username = "test@example.com", password = "password")
+    public void testFeedCursorPagination() throws Exception {
+        String prefix = "Feed Page Post " + System.currentTimeMillis() + " ";
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/api/posts")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"content\": \"" + prefix + i + "\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/posts/feed").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].content").value(prefix + 3))
+                .andExpect(jsonPath("$.items[1].content").value(prefix + 2))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+        mockMvc.perform(get("/api/posts/feed").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].content").value(prefix + 1));
+
+        mockMvc.perform(get("/api/posts/feed").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "test@example.com", password = "password")
+    public void testBroadcastsAndSinglePost() throws Exception {
+        String stamp = String.valueOf(System.currentTimeMillis());
+        for (String content : new String[]{"[SYSTEM BROADCAST] first " + stamp, "ordinary " + stamp, "[SYSTEM BROADCAST] second " + stamp}) {
+            mockMvc.perform(post("/api/posts")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"content\": \"" + content + "\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/posts/broadcasts").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].content").value("[SYSTEM BROADCAST] second " + stamp))
+                .andExpect(jsonPath("$[1].content").value("[SYSTEM BROADCAST] first " + stamp));
+
+        String listing = mockMvc.perform(get("/api/posts/feed").param("limit", "1"))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(listing).get("items").get(0).get("id").asLong();
+        mockMvc.perform(get("/api/posts/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value("[SYSTEM BROADCAST] second " + stamp));
+        mockMvc.perform(get("/api/posts/" + (id + 1000)))
+                .andExpect(status().isNotFound());
+    }
 }
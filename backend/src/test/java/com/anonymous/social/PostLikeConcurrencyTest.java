@@ -0,0 +1,108 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.Post;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.PostRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.PostService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: every like must commit on its own thread for the race to be real
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PostLikeConcurrencyTest {
+
+    private static final int LIKERS = 16;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> userIds = new ArrayList<>();
+    private Long postId;
+
+    private User createUser(String email, String name) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setAnonymousName(name);
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+        userIds.add(user.getId());
+        return user;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        if (postId != null) postRepository.deleteById(postId);
+        userRepository.deleteAllById(userIds);
+    }
+
+    @Test
+    public void testConcurrentLikesAreNotLost() throws Exception {
+        User author = createUser("like-author@example.com", "LikeAuthor");
+        Post post = new Post();
+        post.setUser(author);
+        post.setContent("Concurrent like target");
+        post.setFakeLikeCount(0);
+        postId = postRepository.save(post).getId();
+
+        List<String> likers = new ArrayList<>();
+        for (int i = 0; i < LIKERS; i++) {
+            likers.add(createUser("liker" + i + "@example.com", "Liker" + i).getEmail());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (String email : likers) {
+            results.add(pool.submit(() -> {
+                start.await();
+                postService.likePost(postId, email, null);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) result.get();
+        pool.shutdown();
+
+        assertEquals(LIKERS, postRepository.findById(postId).orElseThrow().getFakeLikeCount());
+        assertEquals(LIKERS, userRepository.findById(author.getId()).orElseThrow().getReputationScore());
+
+        // Toggling one like back off costs a fixed handful of statements and moves both counters
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        postService.likePost(postId, likers.get(0), null);
+        long statements = statistics.getPrepareStatementCount();
+        System.out.println("TEST: unlike prepared " + statements + " statements");
+
+        assertEquals(LIKERS - 1, postRepository.findById(postId).orElseThrow().getFakeLikeCount());
+        assertEquals(LIKERS - 1, userRepository.findById(author.getId()).orElseThrow().getReputationScore());
+        // Liker lookup, reaction lookup, delete and the two counter updates
+        assertTrue(statements <= 5, "unlike prepared " + statements + " statements");
+    }
+}
@@ -0,0 +1,87 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.Post;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.PostRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.FeedQueryService;
+import com.anonymous.social.service.PostService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Not @Transactional: the ranking only moves after a like commits
+@SpringBootTest
+public class PostRankingIntegrationTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private FeedQueryService feedQueryService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> postIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    private User createUser(String email, String name) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setAnonymousName(name);
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+        userIds.add(user.getId());
+        return user;
+    }
+
+    private Long createPost(String email, String content) {
+        Long id = postService.createPost(email, content, null).getId();
+        postIds.add(id);
+        return id;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        postRepository.deleteAllById(postIds);
+        userRepository.deleteAllById(userIds);
+    }
+
+    @Test
+    public void testTopPostsFollowLikesAndUnlikes() {
+        User author = createUser("rank-author@example.com", "RankAuthor");
+        User first = createUser("rank-a@example.com", "RankA");
+        User second = createUser("rank-b@example.com", "RankB");
+
+        Long popular = createPost(author.getEmail(), "Popular post");
+        Long runnerUp = createPost(author.getEmail(), "Runner-up post");
+
+        postService.likePost(popular, first.getEmail(), null);
+        postService.likePost(popular, second.getEmail(), null);
+        postService.likePost(runnerUp, first.getEmail(), null);
+        postService.addComment(runnerUp, second.getEmail(), "nice");
+
+        assertEquals(List.of(popular, runnerUp), feedQueryService.getTopLikedPosts(2).stream().map(Post::getId).toList());
+        assertEquals(2, postRepository.findById(popular).orElseThrow().getLikeCount());
+        assertEquals(1, postRepository.findById(runnerUp).orElseThrow().getCommentCount());
+
+        // Toggling both likes off drops the former leader behind the runner-up
+        postService.likePost(popular, first.getEmail(), null);
+        postService.likePost(popular, second.getEmail(), null);
+
+        assertEquals(runnerUp, feedQueryService.getTopLikedPosts(1).get(0).getId());
+        assertEquals(0, postRepository.findById(popular).orElseThrow().getLikeCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.CustomUserDetailsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class PrincipalCacheIntegrationTest {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testCachedPrincipalFollowsRoleChangeAfterEvict() {
+        User user = new User();
+        user.setEmail("principal@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("PrincipalUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        UserDetails first = userDetailsService.loadPrincipal(user.getEmail());
+        UserDetails second = userDetailsService.loadPrincipal(user.getEmail());
+        assertSame(first, second);
+        assertEquals("ROLE_USER", first.getAuthorities().iterator().next().getAuthority());
+        assertTrue((Long) userDetailsService.getPrincipalCacheStats().get("hits") >= 1);
+
+        user.setRole("ADMIN");
+        userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
+
+        UserDetails promoted = userDetailsService.loadPrincipal(user.getEmail());
+        assertEquals("ROLE_ADMIN", promoted.getAuthorities().iterator().next().getAuthority());
+        assertEquals("", promoted.getPassword());
+    }
+
+    // Committed rows and a second thread reading them, so not inside the test transaction
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testPrincipalReloadedBeforeCommitIsEvictedAgainAfterIt() throws Exception {
+        User user = new User();
+        user.setEmail("banned-principal@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("BannedPrincipalUser");
+        user.setCreatedAt(LocalDateTime.now());
+        Long id = userRepository.save(user).getId();
+        try {
+            assertFalse(userDetailsService.loadPrincipal(user.getEmail()).isBanned());
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                User banned = userRepository.findById(id).orElseThrow();
+                banned.setBannedUntil(LocalDateTime.now().plusMinutes(10));
+                userRepository.save(banned);
+                userDetailsService.evictAfterCommit(banned.getEmail());
+                // Another request reloads while the ban is not yet committed and caches the old row
+                try {
+                    CompletableFuture.supplyAsync(() -> userDetailsService.loadPrincipal(banned.getEmail()))
+                            .get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            assertTrue(userDetailsService.loadPrincipal(user.getEmail()).isBanned());
+        } finally {
+            userRepository.deleteById(id);
+            userDetailsService.evict(user.getEmail());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatQueryService;
+import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.CustomUserDetailsService;
+import com.anonymous.social.service.FeedQueryService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: the query services must start their own read-only transactions
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ReadOnlyQueryIntegrationTest {
+
+    private static final int HISTORY_SIZE = 200;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private FeedQueryService feedQueryService;
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private SocialGroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> messageIds = new ArrayList<>();
+    private Statistics statistics;
+    private User user;
+    private SocialGroup group;
+
+    @BeforeEach
+    public void setup() {
+        user = new User();
+        user.setEmail("readonly@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("ReadOnlyUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        group = new SocialGroup();
+        group.setName("Read-only Test Group");
+        group.setCreatedBy(user);
+        group = groupRepository.save(group);
+
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            Long id = chatService.saveMessage(group.getId(), user.getEmail(), "message " + i, null, null, null, null, null).getId();
+            messageIds.add(id);
+            if (i % 10 == 0) chatService.addReaction(id, user.getEmail(), "👍");
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        chatMessageRepository.deleteAllById(messageIds);
+        groupRepository.deleteById(group.getId());
+        userRepository.deleteById(user.getId());
+        userDetailsService.evict(user.getEmail());
+    }
+
+    @Test
+    public void testReadPathsNeverFlushOrUpdate() {
+        statistics.clear();
+        assertEquals(HISTORY_SIZE, chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, HISTORY_SIZE).size());
+        chatQueryService.getGroupMessagesSince(group.getId(), user.getEmail(), 0L);
+        chatQueryService.getUserMessages(user.getId());
+        feedQueryService.getFeedPage(null, 50, null);
+        feedQueryService.getAllPosts("week");
+
+        assertEquals(0, statistics.getFlushCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getCollectionUpdateCount());
+
+        // The same read joined to a read-write transaction is dirty-checked and flushed at commit
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status ->
+                chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, HISTORY_SIZE));
+        assertEquals(1, statistics.getFlushCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    public void testReadOnlyHistoryAllocatesLess() {
+        long readOnly = Long.MAX_VALUE;
+        long readWrite = Long.MAX_VALUE;
+        // Best of several runs, so JIT warm-up doesn't count against whichever path goes first
+        for (int i = 0; i < 5; i++) {
+            long before = allocatedBytes();
+            chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, HISTORY_SIZE);
+            readOnly = Math.min(readOnly, allocatedBytes() - before);
+
+            before = allocatedBytes();
+            transactionTemplate.executeWithoutResult(status ->
+                    chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, HISTORY_SIZE));
+            readWrite = Math.min(readWrite, allocatedBytes() - before);
+        }
+        System.out.println("TEST: " + HISTORY_SIZE + "-message history allocated " + readOnly / 1024 + " KB read-only vs "
+                + readWrite / 1024 + " KB read-write");
+        // No loaded-state snapshots and no flush-time dirty check
+        assertTrue(readOnly < readWrite, "read-only " + readOnly + " bytes, read-write " + readWrite + " bytes");
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
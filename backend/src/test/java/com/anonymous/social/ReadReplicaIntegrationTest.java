@@ -0,0 +1,162 @@
+package com.anonymous.social;
+
+import com.anonymous.social.config.ReplicaRoutingDataSource;
+import com.anonymous.social.dto.ChatMessageView;
+import com.anonymous.social.dto.FeedCursor;
+import com.anonymous.social.model.Post;
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.GroupChatMessageRepository;
+import com.anonymous.social.repository.PostRepository;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatQueryService;
+import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.CustomUserDetailsService;
+import com.anonymous.social.service.FeedQueryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Its own in-memory primary and a second in-memory database as the replica. Nothing replicates
+// between them: the replica has the schema and a heartbeat inside max-lag-ms, so it stays in
+// rotation while missing every row written during the test, which is what a lagging replica is.
+@SpringBootTest(properties = {
+        "db.replica.enabled=true",
+        "db.replica.max-lag-ms=60000",
+        "spring.datasource.url=jdbc:h2:mem:replicadb;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "db.replica.urls=" + ReadReplicaIntegrationTest.REPLICA_URL
+})
+public class ReadReplicaIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replicalagdb;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FeedQueryService feedQueryService;
+
+    @Autowired
+    private ChatQueryService chatQueryService;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private SocialGroupRepository groupRepository;
+
+    @Autowired
+    private GroupChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        for (Map<String, Object> row : jdbcTemplate.queryForList("SCRIPT NODATA")) {
+            String statement = (String) row.values().iterator().next();
+            if (!statement.startsWith("CREATE USER")) replica.execute(statement);
+        }
+        replica.update("INSERT INTO replication_heartbeat (id, beat_ms) VALUES (1, ?)", System.currentTimeMillis() - 2000);
+        replicaRoutingDataSource.checkReplicas();
+
+        user = new User();
+        user.setEmail("replica@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("ReplicaUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (SocialGroup group : groupRepository.findAll()) {
+                chatMessageRepository.unlinkRepliesByGroupId(group.getId());
+                chatMessageRepository.deleteByGroupId(group.getId());
+                groupRepository.deleteById(group.getId());
+            }
+            postRepository.deleteAll();
+        });
+        userRepository.deleteById(user.getId());
+        userDetailsService.evict(user.getEmail());
+    }
+
+    private Map<?, ?> replicaStats() {
+        return (Map<?, ?>) replicaRoutingDataSource.getStats().get("replica-0");
+    }
+
+    @Test
+    public void testReconnectDeltaIsCompleteWhileTheReplicaLags() {
+        Map<?, ?> stats = replicaStats();
+        assertEquals(true, stats.get("healthy"));
+        assertTrue((Long) stats.get("lagMs") >= 2000, "lag: " + stats.get("lagMs"));
+
+        SocialGroup group = new SocialGroup();
+        group.setName("Replica Group");
+        group.setCreatedBy(user);
+        group = groupRepository.save(group);
+        ChatMessageView first = chatService.saveMessage(group.getId(), user.getEmail(), "one", null, null, null, null, null);
+        chatService.saveMessage(group.getId(), user.getEmail(), "two", null, null, null, null, null);
+        ChatMessageView last = chatService.saveMessage(group.getId(), user.getEmail(), "three", null, null, null, null, null);
+
+        long readsBefore = (Long) replicaStats().get("reads");
+        // A client that saw "one", then reconnected: the rest are still within the replica's lag
+        assertEquals(List.of("two", "three"), chatQueryService.getGroupMessagesSince(group.getId(), user.getEmail(), first.getId())
+                .getItems().stream().map(ChatMessageView::getMessage).toList());
+        assertEquals(3, chatQueryService.getGroupMessagesForUser(group.getId(), user.getEmail(), null, null, null).size());
+        assertEquals(readsBefore, replicaStats().get("reads"));
+
+        // Scrolling back is served by the replica, which hasn't got them yet
+        assertTrue(chatQueryService.getOlderGroupMessages(group.getId(), user.getEmail(), last.getId() + 1, 50).isEmpty());
+        assertEquals(readsBefore + 1, replicaStats().get("reads"));
+    }
+
+    @Test
+    public void testFirstFeedPageAndCacheLoadersReadThePrimary() {
+        Post post = new Post();
+        post.setContent("fresh off the primary");
+        post.setUser(user);
+        post.setCreatedAt(LocalDateTime.now());
+        postRepository.save(post);
+
+        long readsBefore = (Long) replicaStats().get("reads");
+        assertEquals(1, feedQueryService.getFeedPage(null, 10, null).getItems().size());
+        assertEquals(1, feedQueryService.getAllPosts(null).size());
+        assertEquals(readsBefore, replicaStats().get("reads"));
+
+        String cursor = new FeedCursor(LocalDateTime.now().plusMinutes(1), Long.MAX_VALUE).encode();
+        assertTrue(feedQueryService.getOlderFeedPage(cursor, 10, null).getItems().isEmpty());
+        assertEquals(readsBefore + 1, replicaStats().get("reads"));
+    }
+}
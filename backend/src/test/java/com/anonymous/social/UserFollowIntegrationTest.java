@@ -0,0 +1,100 @@
+package com.anonymous.social;
+
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class UserFollowIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User createUser(String email, String name) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("password");
+        user.setAnonymousName(name);
+        user.setCreatedAt(LocalDateTime.now());
+        return userRepository.save(user);
+    }
+
+    @Test
+    public void testFollowCountsAndMembership() {
+        User alice = createUser("alice@example.com", "FollowAlice");
+        User bob = createUser("bob@example.com", "FollowBob");
+
+        userService.followUser(alice.getEmail(), bob.getId());
+        userService.followUser(alice.getEmail(), bob.getId()); // repeat follow is a no-op
+
+        assertTrue(userService.isFollowing(alice.getEmail(), bob.getId()));
+        assertFalse(userService.isFollowing(bob.getEmail(), alice.getId()));
+        assertEquals(1, userService.getFollowersCount(bob.getId()));
+        assertEquals(1, userService.getFollowingCount(alice.getId()));
+        assertEquals(0, userService.getFollowersCount(alice.getId()));
+
+        userService.unfollowUser(alice.getEmail(), bob.getId());
+        assertFalse(userService.isFollowing(alice.getEmail(), bob.getId()));
+        assertEquals(0, userService.getFollowersCount(bob.getId()));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.followUser(alice.getEmail(), alice.getId()));
+    }
+
+    // Committed rows and real concurrent transactions, so not inside the test transaction
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testConcurrentFollowsInsertOneRow() throws Exception {
+        User carol = createUser("carol@example.com", "FollowCarol");
+        User dave = createUser("dave@example.com", "FollowDave");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(0, userService.getFollowersCount(dave.getId())); // cached before the follows
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> follows = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                follows.add(pool.submit(() -> {
+                    start.await();
+                    userService.followUser(carol.getEmail(), dave.getId());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> follow : follows) {
+                follow.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(1, userRepository.countFollow(carol.getId(), dave.getId()));
+            assertEquals(1, userService.getFollowersCount(dave.getId()));
+            assertEquals(1, userService.getFollowingCount(carol.getId()));
+        } finally {
+            pool.shutdown();
+            userService.unfollowUser(carol.getEmail(), dave.getId());
+            userRepository.deleteById(carol.getId());
+            userRepository.deleteById(dave.getId());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.anonymous.social;
+
+import com.anonymous.social.config.WebSocketChannelExecutors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class WebSocketChannelExecutorsTest {
+
+    @Autowired
+    private WebSocketChannelExecutors channelExecutors;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor clientInboundChannelExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ThreadPoolTaskExecutor clientOutboundChannelExecutor;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChannelsUseMeteredExecutors() throws Exception {
+        assertSame(channelExecutors.getInbound(), clientInboundChannelExecutor);
+        assertSame(channelExecutors.getOutbound(), clientOutboundChannelExecutor);
+
+        long before = (Long) ((Map<String, Object>) channelExecutors.getStats().get("inbound")).get("completed");
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            clientInboundChannelExecutor.execute(done::countDown);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // The metering wrapper counts a task after it has run, so allow it to finish
+        long deadline = System.currentTimeMillis() + 2000;
+        long after;
+        do {
+            after = (Long) ((Map<String, Object>) channelExecutors.getStats().get("inbound")).get("completed");
+        } while (after < before + 10 && System.currentTimeMillis() < deadline);
+        assertEquals(before + 10, after);
+    }
+}
@@ -0,0 +1,45 @@
+package com.anonymous.social;
+
+import com.anonymous.social.service.WordFilterService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Not @Transactional: the row is committed, as if another instance had added it
+@SpringBootTest
+public class WordFilterServiceIntegrationTest {
+
+    @Autowired
+    private WordFilterService wordFilterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("DELETE FROM banned_words WHERE word = 'zorblax'");
+        wordFilterService.refreshIfChanged();
+    }
+
+    @Test
+    public void testRefreshPicksUpWordAddedElsewhere() {
+        assertEquals(0, wordFilterService.getBanDuration("well, zorblax to you"));
+        long version = wordFilterService.getSnapshotVersion();
+
+        jdbcTemplate.update("INSERT INTO banned_words (word, ban_duration_minutes) VALUES ('zorblax', 42)");
+        wordFilterService.refreshIfChanged();
+
+        assertEquals(42, wordFilterService.getBanDuration("well, ZORBLAX to you"));
+        assertTrue(wordFilterService.getSnapshotVersion() > version);
+
+        // Nothing moved since, so the next poll keeps the snapshot
+        version = wordFilterService.getSnapshotVersion();
+        wordFilterService.refreshIfChanged();
+        assertEquals(version, wordFilterService.getSnapshotVersion());
+    }
+}
@@ -0,0 +1,78 @@
+package com.anonymous.social.benchmark;
+
+import com.anonymous.social.utils.AhoCorasickMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled banned-word automaton against the per-word {@code String.contains} loop
+ * WordFilterService used before. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.anonymous.social.benchmark.BannedWordMatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BannedWordMatchBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    public int wordCount;
+
+    private Map<String, Integer> words;
+    private AhoCorasickMatcher matcher;
+    private String message;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        words = new HashMap<>();
+        while (words.size() < wordCount) {
+            words.put(randomWord(random, 4 + random.nextInt(6)), 1 + random.nextInt(60));
+        }
+        matcher = AhoCorasickMatcher.compile(words);
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 280) {
+            text.append(randomWord(random, 2 + random.nextInt(8))).append(' ');
+        }
+        message = text.toString();
+    }
+
+    @Benchmark
+    public int containsLoop() {
+        String lowerContent = message.toLowerCase();
+        int maxDuration = 0;
+        for (Map.Entry<String, Integer> entry : words.entrySet()) {
+            if (lowerContent.contains(entry.getKey())) {
+                maxDuration = Math.max(maxDuration, entry.getValue());
+            }
+        }
+        return maxDuration;
+    }
+
+    @Benchmark
+    public int automaton() {
+        return matcher.maxWeight(message.toLowerCase());
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BannedWordMatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.anonymous.social.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Inserts/sec for bursts of chat messages written in one transaction, the two ways Hibernate can
+ * issue them: one INSERT per row with the id read back (IDENTITY, which rules out batching), or ids
+ * taken from a pooled block and the rows sent as one JDBC batch (table/sequence ids plus
+ * hibernate.jdbc.batch_size). Uses its own bench_* tables.
+ *
+ * Defaults to in-memory H2; the interesting numbers come from MySQL with the prod profile's driver
+ * settings, which let Connector/J rewrite each batch into a multi-row INSERT:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.anonymous.social.benchmark.ChatBurstInsertBenchmark \
+ *     -Durl='jdbc:mysql://localhost:3306/anonymous_db?rewriteBatchedStatements=true&amp;useServerPrepStmts=true&amp;cachePrepStmts=true' \
+ *     -Duser=root -Dpassword=... -Dburst=50 -Dbursts=500
+ */
+public class ChatBurstInsertBenchmark {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO bench_chat_messages_pooled (id, group_id, user_id, message, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_IDENTITY_SQL =
+            "INSERT INTO bench_chat_messages_identity (group_id, user_id, message, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final int BLOCK_SIZE = 50;
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("url", "jdbc:h2:mem:burst;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        String user = System.getProperty("user", "sa");
+        String password = System.getProperty("password", "");
+        int burst = Integer.getInteger("burst", 50);
+        int bursts = Integer.getInteger("bursts", 500);
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            try (Statement ddl = connection.createStatement()) {
+                // Separate tables, so AUTO_INCREMENT never runs into the explicitly assigned ids
+                for (String table : new String[]{"bench_chat_messages_identity", "bench_chat_messages_pooled"}) {
+                    ddl.execute("DROP TABLE IF EXISTS " + table);
+                    ddl.execute("CREATE TABLE " + table + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, group_id BIGINT NOT NULL, " +
+                            "user_id BIGINT NOT NULL, message TEXT NOT NULL, created_at TIMESTAMP NULL)");
+                }
+                ddl.execute("DROP TABLE IF EXISTS bench_id_generators");
+                ddl.execute("CREATE TABLE bench_id_generators (sequence_name VARCHAR(64) PRIMARY KEY, next_val BIGINT NOT NULL)");
+                ddl.execute("INSERT INTO bench_id_generators VALUES ('bench', 1000000000)");
+            }
+            connection.setAutoCommit(false);
+
+            System.out.printf("%s, bursts of %d messages%n", url, burst);
+            for (int round = 0; round < 2; round++) {
+                String label = round == 0 ? "warm-up" : "measured";
+                int count = round == 0 ? Math.max(1, bursts / 5) : bursts;
+                double identity = identityInserts(connection, burst, count);
+                double batched = pooledBatchInserts(connection, burst, count);
+                System.out.printf("%-8s identity, row by row: %,10.0f inserts/s%n", label, identity);
+                System.out.printf("%-8s pooled ids, batched:  %,10.0f inserts/s (%.1fx)%n", label, batched, batched / identity);
+            }
+        }
+    }
+
+    private static double identityInserts(Connection connection, int burst, int bursts) throws Exception {
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_IDENTITY_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int b = 0; b < bursts; b++) {
+                for (int i = 0; i < burst; i++) {
+                    insert.setLong(1, b % 10);
+                    insert.setLong(2, i % 20);
+                    insert.setString(3, "message " + i + " of burst " + b);
+                    insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                }
+                connection.commit();
+            }
+        }
+        return (double) burst * bursts / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double pooledBatchInserts(Connection connection, int burst, int bursts) throws Exception {
+        long start = System.nanoTime();
+        long nextId = 0;
+        long blockEnd = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL);
+             PreparedStatement reserve = connection.prepareStatement(
+                     "UPDATE bench_id_generators SET next_val = next_val + ? WHERE sequence_name = 'bench'");
+             PreparedStatement read = connection.prepareStatement(
+                     "SELECT next_val FROM bench_id_generators WHERE sequence_name = 'bench'")) {
+            for (int b = 0; b < bursts; b++) {
+                for (int i = 0; i < burst; i++) {
+                    if (nextId == blockEnd) {
+                        // Reserving a block is its own short transaction, like Hibernate's table generator
+                        reserve.setInt(1, BLOCK_SIZE);
+                        reserve.executeUpdate();
+                        try (ResultSet rs = read.executeQuery()) {
+                            rs.next();
+                            blockEnd = rs.getLong(1);
+                        }
+                        connection.commit();
+                        nextId = blockEnd - BLOCK_SIZE;
+                    }
+                    insert.setLong(1, nextId++);
+                    insert.setLong(2, b % 10);
+                    insert.setLong(3, i % 20);
+                    insert.setString(4, "message " + i + " of burst " + b);
+                    insert.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+        }
+        return (double) burst * bursts / ((System.nanoTime() - start) / 1e9);
+    }
+}
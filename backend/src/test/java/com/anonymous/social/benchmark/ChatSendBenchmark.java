@@ -0,0 +1,88 @@
+package com.anonymous.social.benchmark;
+
+import com.anonymous.social.SocialPlatformApplication;
+import com.anonymous.social.model.SocialGroup;
+import com.anonymous.social.model.User;
+import com.anonymous.social.repository.SocialGroupRepository;
+import com.anonymous.social.repository.UserRepository;
+import com.anonymous.social.service.ChatService;
+import com.anonymous.social.service.CustomUserDetailsService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code ChatService.saveMessage} against in-memory H2, with the sender served from the
+ * principal cache versus loaded by email on every send (TTL 0, which is what the method did before).
+ * The difference is the sender SELECT per message; against MySQL it is a network round trip too. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.anonymous.social.benchmark.ChatSendBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatSendBenchmark {
+
+    @Param({"true", "false"})
+    public boolean principalCache;
+
+    private ConfigurableApplicationContext context;
+    private ChatService chatService;
+    private Long groupId;
+    private String email;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(SocialPlatformApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:chatsend;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--jpa.ddl-auto=create-drop",
+                "--logging.level.root=WARN");
+        chatService = context.getBean(ChatService.class);
+
+        User user = new User();
+        user.setEmail("bench@example.com");
+        user.setPassword("password");
+        user.setAnonymousName("BenchUser");
+        user.setCreatedAt(LocalDateTime.now());
+        user = context.getBean(UserRepository.class).save(user);
+        email = user.getEmail();
+
+        SocialGroup group = new SocialGroup();
+        group.setName("Bench Group");
+        group.setCreatedBy(user);
+        groupId = context.getBean(SocialGroupRepository.class).save(group).getId();
+
+        if (!principalCache) {
+            CustomUserDetailsService userDetailsService = context.getBean(CustomUserDetailsService.class);
+            ReflectionTestUtils.setField(userDetailsService, "principalTtlMs", 0L);
+            userDetailsService.init();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long send() {
+        return chatService.saveMessage(groupId, email, "hello there", null, null, null, null, null).getId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ChatSendBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.anonymous.social.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing the platform-thread and virtual-thread modes: each
+ * of {@code concurrency} clients sends its next request as soon as the previous one returns, for
+ * {@code duration} seconds after a warm-up, then throughput and latency percentiles are printed.
+ *
+ * Start the backend once with VIRTUAL_THREADS=false and once with VIRTUAL_THREADS=true (Java 21),
+ * against the same database, and run for each:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.anonymous.social.benchmark.HttpLoadTest \
+ *     -Durl=http://localhost:8080/api/posts/feed?limit=20 -Dtoken=&lt;JWT&gt; -Dconcurrency=400 -Dduration=30
+ *
+ * The default target is a JDBC-bound, uncached endpoint, which is where request threads spend their
+ * time blocked and the two modes differ. Keep concurrency above server.tomcat.threads.max (200) to
+ * see the platform pool saturate.
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("url", "http://localhost:8080/api/posts/feed?limit=20");
+        String token = System.getProperty("token", "");
+        int concurrency = Integer.getInteger("concurrency", 400);
+        int warmupSeconds = Integer.getInteger("warmup", 10);
+        int durationSeconds = Integer.getInteger("duration", 30);
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET();
+        if (!token.isEmpty()) builder.header("Authorization", "Bearer " + token);
+        HttpRequest request = builder.build();
+
+        System.out.printf("%s, %d clients, %ds warm-up, %ds measured%n", url, concurrency, warmupSeconds, durationSeconds);
+        long warmupEnd = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long end = warmupEnd + durationSeconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (true) {
+                    long start = System.nanoTime();
+                    if (start >= end) break;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400 && start >= warmupEnd) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        if (start >= warmupEnd) errors.incrementAndGet();
+                        continue;
+                    }
+                    if (start < warmupEnd) continue;
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        clients.shutdown();
+        Arrays.sort(all);
+
+        System.out.printf("requests   %d (%d errors)%n", all.length, errors.get());
+        System.out.printf("throughput %.1f req/s%n", all.length / (double) durationSeconds);
+        System.out.printf("p50        %.1f ms%n", percentile(all, 0.50));
+        System.out.printf("p99        %.1f ms%n", percentile(all, 0.99));
+        System.out.printf("max        %.1f ms%n", all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
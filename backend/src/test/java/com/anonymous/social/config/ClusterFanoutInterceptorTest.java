@@ -0,0 +1,102 @@
+package com.anonymous.social.config;
+
+import com.anonymous.social.service.ClusterMessageBus;
+import com.anonymous.social.service.LocalClusterMessageBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClusterFanoutInterceptorTest {
+
+    private final List<LocalClusterMessageBus> buses = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        buses.forEach(LocalClusterMessageBus::stop);
+    }
+
+    // One simulated node: a broker channel with the interceptor, plus what its broker received
+    private static final class Node {
+        final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        final List<Message<?>> received = new ArrayList<>();
+    }
+
+    private Node node(String hub) {
+        LocalClusterMessageBus bus = new LocalClusterMessageBus(hub);
+        bus.start();
+        buses.add(bus);
+
+        Node node = new Node();
+        ClusterFanoutInterceptor interceptor = new ClusterFanoutInterceptor();
+        ReflectionTestUtils.setField(interceptor, "clusterMessageBus", bus);
+        ReflectionTestUtils.setField(interceptor, "brokerChannel", node.brokerChannel);
+        interceptor.init();
+        node.brokerChannel.addInterceptor(interceptor);
+        node.brokerChannel.subscribe(node.received::add);
+        return node;
+    }
+
+    private static Message<byte[]> message(SimpMessageType type, String destination, String body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    @Test
+    public void testTopicMessagesReachOtherNodesOnce() {
+        Node nodeA = node("fanout-test");
+        Node nodeB = node("fanout-test");
+        Node nodeC = node("fanout-test");
+
+        nodeA.brokerChannel.send(message(SimpMessageType.MESSAGE, "/topic/group/7", "{\"content\":\"hi\"}"));
+
+        // Delivered locally and once per peer; the replayed copies are not published again
+        assertEquals(1, nodeA.received.size());
+        assertEquals(1, nodeB.received.size());
+        assertEquals(1, nodeC.received.size());
+        Message<?> relayed = nodeB.received.get(0);
+        assertEquals("/topic/group/7", SimpMessageHeaderAccessor.getDestination(relayed.getHeaders()));
+        assertEquals("{\"content\":\"hi\"}", new String((byte[]) relayed.getPayload(), StandardCharsets.UTF_8));
+        assertTrue(relayed.getHeaders().containsKey(ClusterFanoutInterceptor.RELAYED_HEADER));
+    }
+
+    @Test
+    public void testSessionScopedTrafficStaysLocal() {
+        Node nodeA = node("local-only-test");
+        Node nodeB = node("local-only-test");
+
+        nodeA.brokerChannel.send(message(SimpMessageType.MESSAGE, "/queue/errors-user123", "{}"));
+        nodeA.brokerChannel.send(message(SimpMessageType.SUBSCRIBE, "/topic/group/7", ""));
+
+        assertEquals(2, nodeA.received.size());
+        assertEquals(0, nodeB.received.size());
+    }
+
+    @Test
+    public void testNodeLocalMessagesAndNonTopicFramesAreNotMirrored() {
+        Node nodeA = node("node-local-test");
+        Node nodeB = node("node-local-test");
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/topic/group/7/active");
+        accessor.setNativeHeader(ClusterFanoutInterceptor.NODE_LOCAL_HEADER, "true");
+        nodeA.brokerChannel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        // Frames other bus receivers exchange are not replayed into the broker
+        buses.get(0).publish(new ClusterMessageBus.Frame("/cluster/presence", "application/json", new byte[0]));
+
+        assertEquals(1, nodeA.received.size());
+        assertEquals(0, nodeB.received.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.anonymous.social.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Two H2 databases stand in for a MySQL primary and its replica; the test copies the heartbeat
+// row across by hand to play the part of replication
+public class ReplicaRoutingDataSourceTest {
+
+    @ReplicaReads
+    static class Reads {
+    }
+
+    static class SomeReads {
+        @ReplicaReads
+        void older() {
+        }
+
+        void newest() {
+        }
+    }
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaRoutingDataSource routing;
+    private DataSource dataSource;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        DataSource primaryDb = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replicaDb = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "sa", "");
+        primary = new JdbcTemplate(primaryDb);
+        replica = new JdbcTemplate(replicaDb);
+        for (JdbcTemplate db : new JdbcTemplate[]{primary, replica}) {
+            db.execute("CREATE TABLE node (name VARCHAR(20))");
+            db.execute("CREATE TABLE replication_heartbeat (id INT PRIMARY KEY, beat_ms BIGINT NOT NULL)");
+        }
+        primary.update("INSERT INTO node VALUES ('primary')");
+        replica.update("INSERT INTO node VALUES ('replica')");
+        replica.update("INSERT INTO replication_heartbeat VALUES (1, ?)", System.currentTimeMillis());
+
+        routing = new ReplicaRoutingDataSource(primaryDb, Map.of("replica-0", replicaDb), 5000);
+        routing.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        primary.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    private String node(String transactionName, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setName(transactionName);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    public void testOnlyReadOnlyTransactionsOfMarkedClassesUseTheReplica() {
+        String marked = Reads.class.getName() + ".load";
+        assertEquals("replica", node(marked, true));
+        assertEquals("primary", node(marked, false));
+        // e.g. Spring Data's implicit read-only transaction around a repository read
+        assertEquals("primary", node("org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById", true));
+        assertEquals("primary", node(null, true));
+
+        assertEquals("replica", node(SomeReads.class.getName() + ".older", true));
+        assertEquals("primary", node(SomeReads.class.getName() + ".newest", true));
+    }
+
+    @Test
+    public void testLaggingReplicaFallsBackToPrimaryUntilItCatchesUp() {
+        String marked = Reads.class.getName() + ".load";
+
+        replica.update("UPDATE replication_heartbeat SET beat_ms = ? WHERE id = 1", System.currentTimeMillis() - 60_000);
+        routing.checkReplicas();
+        assertEquals("primary", node(marked, true));
+        assertEquals(1L, routing.getStats().get("primaryFallbacks"));
+
+        replica.update("UPDATE replication_heartbeat SET beat_ms = ? WHERE id = 1", System.currentTimeMillis());
+        routing.checkReplicas();
+        assertEquals("replica", node(marked, true));
+
+        // Unreachable (here: heartbeat table gone) counts as out of rotation too
+        replica.execute("DROP TABLE replication_heartbeat");
+        routing.checkReplicas();
+        assertEquals("primary", node(marked, true));
+    }
+}
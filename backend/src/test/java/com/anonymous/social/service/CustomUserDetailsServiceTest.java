@@ -0,0 +1,71 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CustomUserDetailsServiceTest {
+
+    private final List<LocalClusterMessageBus> buses = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        buses.forEach(LocalClusterMessageBus::stop);
+    }
+
+    private CustomUserDetailsService clusterNode(String hub) {
+        LocalClusterMessageBus bus = new LocalClusterMessageBus(hub);
+        bus.start();
+        buses.add(bus);
+        CustomUserDetailsService node = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(node, "principalTtlMs", 60000L);
+        ReflectionTestUtils.setField(node, "principalMaxSize", 100);
+        ReflectionTestUtils.setField(node, "clusterMessageBus", bus);
+        node.init();
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<String, CustomUserDetailsService.UserPrincipal> cache(CustomUserDetailsService node) {
+        return (Cache<String, CustomUserDetailsService.UserPrincipal>) ReflectionTestUtils.getField(node, "principalCache");
+    }
+
+    private static CustomUserDetailsService.UserPrincipal principal(String email) {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail(email);
+        user.setAnonymousName("Neon Fox");
+        user.setBannedUntil(LocalDateTime.now().minusMinutes(1));
+        return new CustomUserDetailsService.UserPrincipal(user, "");
+    }
+
+    @Test
+    public void testEvictReachesEveryNode() {
+        String hub = UUID.randomUUID().toString();
+        CustomUserDetailsService a = clusterNode(hub);
+        CustomUserDetailsService b = clusterNode(hub);
+        cache(a).put("fox@example.com", principal("fox@example.com"));
+        cache(b).put("fox@example.com", principal("fox@example.com"));
+        cache(b).put("owl@example.com", principal("owl@example.com"));
+        assertFalse(cache(b).getIfPresent("fox@example.com").isBanned());
+
+        // Banned on node a: node b must not keep serving the unbanned principal for a full TTL
+        a.evict("fox@example.com");
+
+        assertNull(cache(a).getIfPresent("fox@example.com"));
+        assertNull(cache(b).getIfPresent("fox@example.com"));
+        assertEquals("Neon Fox", cache(b).getIfPresent("owl@example.com").getAnonymousName());
+        assertEquals(1L, b.getPrincipalCacheStats().get("invalidations"));
+    }
+}
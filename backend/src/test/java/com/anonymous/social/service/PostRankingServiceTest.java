@@ -0,0 +1,61 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PostRankingServiceTest {
+
+    // Post id -> stored score, standing in for the posts table
+    private final Map<Long, Integer> stored = new HashMap<>();
+    private Runnable duringCandidateQuery = () -> { };
+
+    private PostRankingService ranking() {
+        PostRankingService ranking = new PostRankingService();
+        ReflectionTestUtils.setField(ranking, "capacity", 10);
+        ReflectionTestUtils.setField(ranking, "postRepository", Proxy.newProxyInstance(PostRepository.class.getClassLoader(),
+                new Class<?>[]{PostRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findRankingCandidates" -> {
+                        List<Object[]> rows = new ArrayList<>();
+                        stored.entrySet().stream()
+                                .sorted((a, b) -> a.getValue().equals(b.getValue())
+                                        ? Long.compare(b.getKey(), a.getKey()) : Integer.compare(b.getValue(), a.getValue()))
+                                .forEach(entry -> rows.add(new Object[]{entry.getKey(), entry.getValue()}));
+                        // Read first, then the like commits and its event arrives before the rebuild
+                        duringCandidateQuery.run();
+                        yield rows;
+                    }
+                    case "findRankingScore" -> Optional.ofNullable(stored.get((Long) args[0]));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        return ranking;
+    }
+
+    @Test
+    public void testLikesDuringReseedAreNotLost() {
+        stored.put(1L, 5);
+        stored.put(2L, 3);
+        PostRankingService ranking = ranking();
+        ranking.reseed();
+        assertEquals(List.of(1L, 2L), ranking.getTopPostIds(2));
+
+        duringCandidateQuery = () -> {
+            stored.put(2L, 6);
+            ranking.onLikesChanged(2L, 3);
+            stored.remove(1L);
+            ranking.onPostDeleted(1L);
+        };
+        ranking.reseed();
+
+        assertEquals(List.of(2L), ranking.getTopPostIds(2));
+    }
+}
@@ -0,0 +1,172 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.config.ClusterFanoutInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PresenceRegistryTest {
+
+    private PresenceRegistry registry;
+    private final List<Object[]> sent = new ArrayList<>();
+    private final List<LocalClusterMessageBus> buses = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        registry = registry(sent);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        buses.forEach(LocalClusterMessageBus::stop);
+    }
+
+    // {destination, payload, headers} of every broadcast
+    private static PresenceRegistry registry(List<Object[]> sent) {
+        PresenceRegistry registry = new PresenceRegistry();
+        ReflectionTestUtils.setField(registry, "snapshotMaxUsers", 200);
+        ReflectionTestUtils.setField(registry, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(registry, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> true) {
+            @Override
+            public void convertAndSend(String destination, Object payload) throws MessagingException {
+                sent.add(new Object[]{destination, payload, null});
+            }
+
+            @Override
+            public void convertAndSend(String destination, Object payload, Map<String, Object> headers) throws MessagingException {
+                sent.add(new Object[]{destination, payload, headers});
+            }
+        });
+        return registry;
+    }
+
+    private PresenceRegistry clusterNode(String hub, List<Object[]> sent) {
+        LocalClusterMessageBus bus = new LocalClusterMessageBus(hub);
+        bus.start();
+        buses.add(bus);
+        PresenceRegistry node = registry(sent);
+        ReflectionTestUtils.setField(node, "clusterMessageBus", bus);
+        ReflectionTestUtils.setField(node, "syncIntervalMs", 50L);
+        ReflectionTestUtils.setField(node, "brokerMode", "bus");
+        node.init();
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lastDelta(List<Object[]> sent) {
+        return (Map<String, Object>) sent.get(sent.size() - 1)[1];
+    }
+
+    private Map<String, Object> lastDelta() {
+        return lastDelta(sent);
+    }
+
+    @Test
+    public void testChangesAreCoalescedIntoChainedDeltas() {
+        registry.join("s1", "Neon Fox", 1L);
+        registry.join("s2", "Iron Owl", 1L);
+        registry.join("s3", "Iron Owl", 1L); // second tab: still one member
+        assertEquals(2, registry.getCount(1L));
+
+        // Not broadcast yet, so a snapshot must not include it
+        assertEquals(List.of(), registry.snapshot(1L).get("users"));
+
+        registry.flush();
+        assertEquals(1, sent.size());
+        assertEquals("/topic/group/1/active", sent.get(0)[0]);
+        Map<String, Object> first = lastDelta();
+        assertEquals(0L, first.get("since"));
+        assertEquals(List.of("Neon Fox", "Iron Owl"), first.get("joined"));
+        assertEquals(2, first.get("count"));
+        assertEquals(first.get("version"), registry.snapshot(1L).get("version"));
+
+        registry.disconnect("s2"); // Iron Owl still has s3
+        registry.join("s4", "Void Cobra", 1L);
+        registry.disconnect("s4"); // reload within one interval cancels out
+        registry.flush();
+        assertEquals(1, sent.size());
+
+        registry.disconnect("s3");
+        registry.flush();
+        Map<String, Object> second = lastDelta();
+        assertEquals(first.get("version"), second.get("since"));
+        assertEquals(List.of("Iron Owl"), second.get("left"));
+        assertEquals(1, second.get("count"));
+        assertEquals(List.of("Neon Fox"), registry.snapshot(1L).get("users"));
+    }
+
+    @Test
+    public void testEmptyGroupIsDroppedAndRestartsFromFreshVersion() {
+        registry.join("s1", "Neon Fox", 7L);
+        registry.flush();
+        registry.leave("s1", 7L);
+        registry.flush();
+        long lastVersion = (Long) lastDelta().get("version");
+        assertEquals(0, registry.getCount(7L));
+        assertEquals(0L, registry.snapshot(7L).get("version"));
+
+        registry.join("s1", null, 7L); // known session rejoining
+        registry.flush();
+        assertEquals(0L, lastDelta().get("since"));
+        assertTrue((Long) lastDelta().get("version") > lastVersion);
+    }
+
+    @Test
+    public void testNodesMergeEachOthersMembersIntoTheirOwnDeltas() throws Exception {
+        List<Object[]> sentA = new ArrayList<>();
+        List<Object[]> sentB = new ArrayList<>();
+        PresenceRegistry nodeA = clusterNode("presence-test", sentA);
+        PresenceRegistry nodeB = clusterNode("presence-test", sentB);
+
+        nodeA.join("a1", "Neon Fox", 1L);
+        nodeB.join("b1", "Iron Owl", 1L);
+        nodeA.flush();
+        assertEquals(List.of("Neon Fox"), lastDelta(sentA).get("joined"));
+        nodeB.flush();
+        assertEquals(List.of("Iron Owl", "Neon Fox"), lastDelta(sentB).get("joined"));
+
+        // A learns of Iron Owl from B and continues its own version sequence
+        long versionA = (Long) lastDelta(sentA).get("version");
+        nodeA.flush();
+        assertEquals(versionA, lastDelta(sentA).get("since"));
+        assertEquals(List.of("Iron Owl"), lastDelta(sentA).get("joined"));
+        assertEquals(2, nodeA.getCount(1L));
+        assertEquals(List.of("Iron Owl", "Neon Fox"), nodeA.snapshot(1L).get("users"));
+        // Each node's deltas are for its own clients only
+        assertEquals(Map.of(ClusterFanoutInterceptor.NODE_LOCAL_HEADER, "true"), sentA.get(sentA.size() - 1)[2]);
+
+        nodeB.leave("b1", 1L);
+        nodeB.flush();
+        nodeA.flush();
+        assertEquals(List.of("Iron Owl"), lastDelta(sentA).get("left"));
+
+        // A node that goes quiet is dropped after three sync intervals
+        nodeB.join("b2", "Void Cobra", 1L);
+        nodeB.flush();
+        nodeA.flush();
+        assertEquals(List.of("Void Cobra"), lastDelta(sentA).get("joined"));
+        buses.get(1).stop();
+        Thread.sleep(200);
+        nodeA.flush();
+        assertEquals(List.of("Void Cobra"), lastDelta(sentA).get("left"));
+        assertEquals(1, nodeA.getCount(1L));
+    }
+
+    @Test
+    public void testRelayModeIsRefused() {
+        ReflectionTestUtils.setField(registry, "brokerMode", "relay");
+        assertThrows(IllegalStateException.class, registry::init);
+    }
+}
@@ -0,0 +1,105 @@
+package com.anonymous.social.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TcpClusterMessageBusTest {
+
+    @Test
+    public void testFramesCrossNodesInOrder() throws Exception {
+        TcpClusterMessageBus receiver = new TcpClusterMessageBus(0, List.of(), "s3cret", 100);
+        BlockingQueue<ClusterMessageBus.Frame> frames = new LinkedBlockingQueue<>();
+        receiver.subscribe(frames::add);
+        receiver.start();
+        TcpClusterMessageBus sender = new TcpClusterMessageBus(0, List.of("127.0.0.1:" + receiver.getLocalPort()), "s3cret", 100);
+        sender.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                sender.publish(new ClusterMessageBus.Frame("/topic/group/" + i, "application/json",
+                        ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8)));
+            }
+            for (int i = 0; i < 50; i++) {
+                ClusterMessageBus.Frame frame = frames.poll(5, TimeUnit.SECONDS);
+                assertNotNull(frame, "frame " + i + " not delivered");
+                assertEquals("/topic/group/" + i, frame.getDestination());
+                assertEquals("application/json", frame.getContentType());
+                assertEquals("{\"n\":" + i + "}", new String(frame.getPayload(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            sender.stop();
+            receiver.stop();
+        }
+    }
+
+    @Test
+    public void testPeerWithWrongSecretIsIgnored() throws Exception {
+        TcpClusterMessageBus receiver = new TcpClusterMessageBus(0, List.of(), "right", 100);
+        BlockingQueue<ClusterMessageBus.Frame> frames = new LinkedBlockingQueue<>();
+        receiver.subscribe(frames::add);
+        receiver.start();
+        TcpClusterMessageBus intruder = new TcpClusterMessageBus(0, List.of("127.0.0.1:" + receiver.getLocalPort()), "wrong", 100);
+        intruder.start();
+        try {
+            intruder.publish(new ClusterMessageBus.Frame("/topic/public", null, new byte[]{1}));
+            assertNull(frames.poll(500, TimeUnit.MILLISECONDS));
+        } finally {
+            intruder.stop();
+            receiver.stop();
+        }
+    }
+
+    @Test
+    public void testBlankSecretIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new TcpClusterMessageBus(0, List.of(), "", 100));
+        assertThrows(IllegalArgumentException.class, () -> new TcpClusterMessageBus(0, List.of(), null, 100));
+    }
+
+    @Test
+    public void testListensOnlyOnTheBindAddress() throws Exception {
+        TcpClusterMessageBus bus = new TcpClusterMessageBus("127.0.0.1", 0, List.of(), "s3cret", 100);
+        bus.start();
+        try {
+            ServerSocket serverSocket = (ServerSocket) ReflectionTestUtils.getField(bus, "serverSocket");
+            assertTrue(serverSocket.getInetAddress().isLoopbackAddress());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    public void testSilentConnectionsAreClosedAndCapped() throws Exception {
+        TcpClusterMessageBus receiver = new TcpClusterMessageBus("127.0.0.1", 0, List.of(), "s3cret", 100);
+        ReflectionTestUtils.setField(receiver, "handshakeTimeoutMs", 300);
+        ReflectionTestUtils.setField(receiver, "maxInbound", 1);
+        receiver.start();
+        try (Socket silent = new Socket("127.0.0.1", receiver.getLocalPort())) {
+            silent.setSoTimeout(5000);
+            Thread.sleep(100);
+            // The cap is taken by the silent socket, so the next one is closed at once
+            try (Socket refused = new Socket("127.0.0.1", receiver.getLocalPort())) {
+                refused.setSoTimeout(5000);
+                assertEquals(-1, refused.getInputStream().read());
+            }
+            // No secret within the handshake timeout: disconnected, freeing its slot
+            long start = System.currentTimeMillis();
+            assertEquals(-1, silent.getInputStream().read());
+            assertTrue(System.currentTimeMillis() - start < 4000);
+        } finally {
+            receiver.stop();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.anonymous.social.service;
+
+import com.anonymous.social.dto.TrendingHashtag;
+import com.anonymous.social.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TrendingHashtagServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long NOW = 1_000 * HOUR + 30 * 60_000L;
+
+    private TrendingHashtagService trending;
+
+    @BeforeEach
+    public void setup() {
+        trending = new TrendingHashtagService();
+        ReflectionTestUtils.setField(trending, "topN", 10);
+        ReflectionTestUtils.setField(trending, "halfLifeFraction", 0.25);
+        ReflectionTestUtils.setField(trending, "heavyHitters", 2);
+        ReflectionTestUtils.setField(trending, "sketchWidth", 256);
+        ReflectionTestUtils.setField(trending, "sketchDepth", 4);
+    }
+
+    private void record(String tag, int times, long at) {
+        for (int i = 0; i < times; i++) trending.record(tag, at);
+    }
+
+    private List<String> names(String window) {
+        return trending.getTrending(window).stream().map(TrendingHashtag::getName).toList();
+    }
+
+    @Test
+    public void testWindowsDecayOldBursts() {
+        // A big burst 20 hours ago against a small burst right now
+        record("old", 10, NOW - 20 * HOUR);
+        record("fresh", 4, NOW);
+        trending.refresh(NOW);
+
+        // 1h only sees the fresh tag; over 24h (6h half-life) the old burst has decayed below it;
+        // over 7d (42h half-life) it still leads
+        assertEquals(List.of("fresh"), names("1h"));
+        assertEquals(List.of("fresh", "old"), names("24h"));
+        assertEquals(List.of("old", "fresh"), names("7d"));
+        assertEquals(10, trending.getTrending("7d").get(0).getCount());
+    }
+
+    @Test
+    public void testLongTailIsCountedThroughSketch() {
+        long hourAgo = NOW - 2 * HOUR;
+        record("a", 5, hourAgo);
+        record("b", 4, hourAgo);
+        record("tail", 3, hourAgo); // beyond heavyHitters=2 once the hour seals
+        record("tail", 3, NOW);
+        record("b", 1, NOW);
+        trending.refresh(NOW);
+
+        TrendingHashtag tail = trending.getTrending("24h").stream()
+                .filter(t -> t.getName().equals("tail")).findFirst().orElseThrow();
+        assertEquals(6, tail.getCount());
+    }
+
+    @Test
+    public void testEmptyWindowStaysEmptyAfterWarmUp() {
+        record("old", 10, NOW - 20 * HOUR);
+        ReflectionTestUtils.setField(trending, "warmedUp", true);
+        trending.refresh(NOW);
+
+        // No all-time fallback (and no repository to fall back to): nothing was used in the last hour
+        assertEquals(List.of(), names("1h"));
+        assertEquals(List.of("old"), names("24h"));
+    }
+
+    @Test
+    public void testUsesBeforeWarmUpDoNotDropReplayedHours() {
+        // Only the recent-content query is called
+        List<Object[]> recent = List.<Object[]>of(new Object[]{"from before the restart #replayed", LocalDateTime.now().minusHours(3)});
+        ReflectionTestUtils.setField(trending, "postRepository", Proxy.newProxyInstance(PostRepository.class.getClassLoader(),
+                new Class<?>[]{PostRepository.class}, (proxy, method, args) -> recent));
+        ReflectionTestUtils.setField(trending, "warmupMaxPosts", 100);
+
+        // Served before ApplicationReadyEvent: had it opened the current hour, the replay would be dropped
+        trending.record("live");
+        trending.warmUp();
+
+        assertEquals(List.of("live"), names("1h"));
+        assertEquals(List.of("live", "replayed"), names("24h"));
+        trending.record("live");
+        trending.refresh();
+        assertEquals(2, trending.getTrending("1h").get(0).getCount());
+    }
+
+    @Test
+    public void testUnknownWindowIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> trending.getTrending("5m"));
+    }
+}
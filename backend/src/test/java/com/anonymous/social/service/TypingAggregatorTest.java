@@ -0,0 +1,113 @@
+package com.anonymous.social.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class TypingAggregatorTest {
+
+    private TypingAggregator aggregator;
+    private final List<Object[]> sent = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        aggregator = new TypingAggregator();
+        ReflectionTestUtils.setField(aggregator, "ttlMs", 3000L);
+        ReflectionTestUtils.setField(aggregator, "minRefreshMs", 1000L);
+        ReflectionTestUtils.setField(aggregator, "maxNames", 2);
+        ReflectionTestUtils.setField(aggregator, "messagingTemplate", new SimpMessagingTemplate((message, timeout) -> true) {
+            @Override
+            public void convertAndSend(String destination, Object payload) throws MessagingException {
+                sent.add(new Object[]{destination, payload});
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> lastFrame() {
+        return (Map<String, Object>) sent.get(sent.size() - 1)[1];
+    }
+
+    @Test
+    public void testKeystrokesCollapseIntoOneFramePerTick() {
+        long now = 1_000_000;
+        for (int i = 0; i < 50; i++) {
+            aggregator.onTyping(1L, "a@x", "Neon Fox", true, now + i * 10);
+            aggregator.onTyping(1L, "b@x", "Iron Owl", true, now + i * 10);
+        }
+        aggregator.onTyping(1L, "c@x", "Void Cobra", true, now);
+        aggregator.tick(now + 500);
+
+        assertEquals(1, sent.size());
+        assertEquals("/topic/group/1/typing", sent.get(0)[0]);
+        assertEquals(List.of("Neon Fox", "Iron Owl"), lastFrame().get("typers"));
+        assertEquals(1, lastFrame().get("more"));
+
+        // Nothing changed: no frame
+        aggregator.tick(now + 1000);
+        assertEquals(1, sent.size());
+
+        aggregator.onTyping(1L, "a@x", "Neon Fox", false, now + 1200);
+        aggregator.tick(now + 1500);
+        assertEquals(List.of("Iron Owl", "Void Cobra"), lastFrame().get("typers"));
+    }
+
+    @Test
+    public void testSilentTypersExpire() {
+        long now = 2_000_000;
+        aggregator.onTyping(3L, "a@x", "Neon Fox", true, now);
+        aggregator.tick(now + 500);
+        aggregator.tick(now + 3600);
+
+        assertEquals(2, sent.size());
+        assertEquals(List.of(), lastFrame().get("typers"));
+    }
+
+    @Test
+    public void testTyperArrivingWhileRoomIsDroppedIsNotLost() throws Exception {
+        long now = 3_000_000;
+        aggregator.onTyping(5L, "a@x", "Neon Fox", true, now);
+        aggregator.tick(now + 500);
+        Object room = ((Map<?, ?>) ReflectionTestUtils.getField(aggregator, "rooms")).get(5L);
+
+        Thread typer;
+        synchronized (room) {
+            // The new typer has looked the room up and waits for it while the tick drops it as empty
+            typer = new Thread(() -> aggregator.onTyping(5L, "b@x", "Iron Owl", true, now + 3600));
+            typer.start();
+            while (typer.getState() != Thread.State.BLOCKED) Thread.sleep(1);
+            aggregator.tick(now + 3600);
+        }
+        typer.join(5000);
+
+        aggregator.tick(now + 4000);
+        assertEquals(List.of("Iron Owl"), lastFrame().get("typers"));
+    }
+
+    @Test
+    public void testFramesNameTheirNodeAndRoomsWithTypersAreResent() {
+        long now = 4_000_000;
+        aggregator.onTyping(6L, "a@x", "Neon Fox", true, now);
+        aggregator.tick(now + 500);
+        Object node = lastFrame().get("node");
+        assertNotNull(node);
+
+        // Still typing and unchanged: resent once per ttl, so clients can tell this node is still there
+        aggregator.onTyping(6L, "a@x", "Neon Fox", true, now + 2000);
+        aggregator.tick(now + 3000);
+        assertEquals(1, sent.size());
+        aggregator.tick(now + 3500);
+        assertEquals(2, sent.size());
+        assertEquals(List.of("Neon Fox"), lastFrame().get("typers"));
+        assertEquals(node, lastFrame().get("node"));
+    }
+}
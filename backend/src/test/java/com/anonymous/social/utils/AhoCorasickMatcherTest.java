@@ -0,0 +1,56 @@
+package com.anonymous.social.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AhoCorasickMatcherTest {
+
+    @Test
+    public void testFindsHighestWeightAcrossOverlappingPatterns() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(Map.of(
+                "he", 1,
+                "she", 5,
+                "his", 3,
+                "hers", 10
+        ));
+
+        assertEquals(0, matcher.maxWeight("nothing to see"));
+        assertEquals(1, matcher.maxWeight("the end"));
+        assertEquals(5, matcher.maxWeight("ushe"));
+        assertEquals(10, matcher.maxWeight("ushers"));
+        assertEquals(3, matcher.maxWeight("this"));
+        assertEquals(0, AhoCorasickMatcher.empty().maxWeight("hers"));
+    }
+
+    @Test
+    public void testAgreesWithContainsLoop() {
+        Random random = new Random(7);
+        Map<String, Integer> words = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            words.put(randomWord(random, 1 + random.nextInt(4)), 1 + random.nextInt(100));
+        }
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(words);
+
+        for (int i = 0; i < 500; i++) {
+            String text = randomWord(random, random.nextInt(40));
+            int expected = 0;
+            for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                if (text.contains(entry.getKey())) expected = Math.max(expected, entry.getValue());
+            }
+            assertEquals(expected, matcher.maxWeight(text), "text: " + text);
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
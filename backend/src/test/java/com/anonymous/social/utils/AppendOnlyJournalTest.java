@@ -0,0 +1,81 @@
+package com.anonymous.social.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppendOnlyJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> replay() throws Exception {
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(directory, 1024)) {
+            return journal.replay().stream().map(record -> new String(record, StandardCharsets.UTF_8)).toList();
+        }
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void testReplayReturnsRecordsInOrderAndStopsAtTornTail() throws Exception {
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(directory, 1024)) {
+            for (int i = 1; i <= 3; i++) {
+                journal.sync(journal.append(i, bytes("record " + i)));
+            }
+        }
+        // A crash halfway through writing a fourth record
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.sorted().findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 0, 42, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        assertEquals(List.of("record 1", "record 2", "record 3"), replay());
+
+        // Replayed segments stay until discarded, records written since open are not replayed
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(directory, 1024)) {
+            journal.append(4, bytes("record 4"));
+            assertEquals(3, journal.replay().size());
+            journal.discardReplayed();
+        }
+        assertEquals(List.of("record 4"), replay());
+    }
+
+    @Test
+    public void testReleaseDeletesOnlyFullyAppliedSegments() throws Exception {
+        byte[] payload = new byte[200];
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(directory, 1024)) {
+            // 216-byte records, four to a segment
+            for (int key = 1; key <= 10; key++) {
+                journal.append(key, payload);
+            }
+            assertEquals(3, journal.getSegmentCount());
+
+            journal.release(6);
+            assertEquals(2, journal.getSegmentCount());
+            journal.release(8);
+            assertEquals(1, journal.getSegmentCount());
+            // The open segment is kept whatever its keys
+            journal.release(10);
+            assertEquals(1, journal.getSegmentCount());
+        }
+        assertEquals(1, segmentFiles());
+        assertEquals(2, replay().size());
+    }
+}
@@ -0,0 +1,28 @@
+package com.anonymous.social.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimatesNeverUnderCountAndStayClose() {
+        CountMinSketch sketch = new CountMinSketch(512, 4);
+        for (int i = 0; i < 2000; i++) {
+            sketch.add("tag" + i, 1 + (i % 5));
+        }
+        sketch.add("heavy", 1000);
+
+        assertTrue(sketch.estimate("heavy") >= 1000);
+        // Error bound is 2N/width with high probability
+        long bound = 2 * sketch.getTotal() / 512;
+        for (int i = 0; i < 2000; i++) {
+            long estimate = sketch.estimate("tag" + i);
+            assertTrue(estimate >= 1 + (i % 5));
+            assertTrue(estimate - (1 + (i % 5)) <= bound, "estimate off by more than " + bound);
+        }
+        assertEquals(0, new CountMinSketch(16, 2).estimate("missing"));
+    }
+}
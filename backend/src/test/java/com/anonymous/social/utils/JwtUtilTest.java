@@ -0,0 +1,75 @@
+package com.anonymous.social.utils;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtUtilTest {
+
+    private static final String OLD_SECRET = "5367566B59703373367639792F423F4528482B4D6251655468576D5A71347437";
+    private static final String NEW_SECRET = "7A24432646294A404E635266556A586E3272357538782F413F4428472B4B6250";
+
+    private static final UserDetails USER = new User("jwt@example.com", "", List.of());
+
+    private static JwtUtil jwtUtil(String secret, String previousSecrets, long expiration) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", secret);
+        ReflectionTestUtils.setField(util, "previousSecrets", previousSecrets);
+        ReflectionTestUtils.setField(util, "jwtExpiration", expiration);
+        util.init();
+        return util;
+    }
+
+    @Test
+    public void testParseReturnsSubjectAndRole() {
+        JwtUtil util = jwtUtil(NEW_SECRET, "", 60_000);
+        String token = util.generateToken(Map.of("role", "ADMIN"), USER);
+
+        JwtUtil.TokenClaims claims = util.parseToken(token);
+        assertEquals("jwt@example.com", claims.getSubject());
+        assertEquals("ADMIN", claims.getRole());
+    }
+
+    @Test
+    public void testRotationKeepsPreviousTokensValid() {
+        String issuedBeforeRotation = jwtUtil(OLD_SECRET, "", 60_000).generateToken(USER);
+
+        JwtUtil rotated = jwtUtil(NEW_SECRET, OLD_SECRET, 60_000);
+        assertEquals("jwt@example.com", rotated.parseToken(issuedBeforeRotation).getSubject());
+
+        JwtUtil retired = jwtUtil(NEW_SECRET, "", 60_000);
+        assertThrows(JwtException.class, () -> retired.parseToken(issuedBeforeRotation));
+    }
+
+    @Test
+    public void testTokenWithoutKeyIdUsesCurrentSecret() {
+        String legacy = Jwts.builder()
+                .setSubject("jwt@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(NEW_SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertEquals("jwt@example.com", jwtUtil(NEW_SECRET, OLD_SECRET, 60_000).parseToken(legacy).getSubject());
+    }
+
+    @Test
+    public void testExpiredTokenIsRejected() {
+        JwtUtil util = jwtUtil(NEW_SECRET, "", -1_000);
+        String token = util.generateToken(USER);
+        assertThrows(ExpiredJwtException.class, () -> util.parseToken(token));
+    }
+}
@@ -10,10 +10,9 @@ const BroadcastPopup = () => {
     useEffect(() => {
         const checkBroadcasts = async () => {
             try {
-                // Fetch latest posts to find the most recent broadcast
-                // Ideally this should be a lightweight endpoint, but using /posts is fine for now
-                const res = await api.get('/api/posts');
-                const latestBroadcast = res.data.find(p => p.content.startsWith('[SYSTEM BROADCAST]'));
+                // Only the most recent broadcast matters here
+                const res = await api.get('/api/posts/broadcasts', { params: { limit: 1 } });
+                const latestBroadcast = res.data[0];
 
                 if (latestBroadcast) {
                     const lastSeenId = localStorage.getItem('lastSeenBroadcastId');
@@ -1,4 +1,4 @@
-import { useEffect, useState, useRef } from 'react';
+import { useEffect, useLayoutEffect, useState, useRef } from 'react';
 import { useAuth } from '../context/AuthContext';
 // import { Stomp } from '@stomp/stompjs';
 // import SockJS from 'sockjs-client';
@@ -18,6 +18,21 @@ import { HiPaperAirplane, HiReply, HiX } from 'react-icons/hi';
 import { FaHeart } from 'react-icons/fa'; // Add FaHeart import
 import { motion, AnimatePresence } from 'framer-motion';
 
+// Merges messages into the list by id, later copies replacing earlier ones, and keeps it in id order
+const mergeById = (prev, incoming) => {
+    if (!incoming || incoming.length === 0) return prev;
+    const byId = new Map(prev.map(msg => [msg.id, msg]));
+    incoming.forEach(msg => byId.set(msg.id, msg));
+    return [...byId.values()].sort((a, b) => a.id - b.id);
+};
+
+const RECONNECT_DELAY_MS = 5000;
+// Messages per history request; a full page means there may be older ones
+const HISTORY_PAGE_SIZE = 50;
+// Each server node resends its typers every typing.ttl-ms (3s); a node silent for longer than
+// this is gone and its typers with it
+const TYPING_STALE_MS = 7000;
+
 const ChatBox = ({ groupId }) => {
     const [messages, setMessages] = useState([]);
     const [newMessage, setNewMessage] = useState('');
@@ -70,18 +85,70 @@ const ChatBox = ({ groupId }) => {
     };
     const [replyTo, setReplyTo] = useState(null);
     const [activeUsers, setActiveUsers] = useState([]);
+    const presenceVersionRef = useRef(null);
     const [typingUsers, setTypingUsers] = useState(new Set());
     const typingTimeoutRef = useRef(null);
+    const lastTypingSentRef = useRef(0);
     const stompClientRef = useRef(null);
     const messagesEndRef = useRef(null);
+    // Highest message id in the list: where the ?since= catch-up resumes after a reconnect
+    const lastSeenIdRef = useRef(null);
+    const [hasOlder, setHasOlder] = useState(false);
+    const [loadingOlder, setLoadingOlder] = useState(false);
+    const scrollContainerRef = useRef(null);
+    // Scroll height before older messages were prepended, so the view stays where the user was reading
+    const prependAnchorRef = useRef(null);
+    const groupIdRef = useRef(groupId);
+    groupIdRef.current = groupId;
     const { user } = useAuth();
 
+    useLayoutEffect(() => {
+        const container = scrollContainerRef.current;
+        if (!container || prependAnchorRef.current === null) return;
+        container.scrollTop += container.scrollHeight - prependAnchorRef.current;
+        prependAnchorRef.current = null;
+    }, [messages]);
+
     useEffect(() => {
-        // Load history
+        lastSeenIdRef.current = messages.length > 0 ? messages[messages.length - 1].id : null;
+    }, [messages]);
+
+    useEffect(() => {
+        lastSeenIdRef.current = null;
+        setMessages([]);
+        setHasOlder(false);
+        setTypingUsers(new Set());
+
+        // Latest typer list per server node; shown as their union
+        const typingByNode = new Map();
+        const showTyping = () => {
+            const names = new Set();
+            let more = 0;
+            typingByNode.forEach((entry) => {
+                entry.typers.forEach((name) => names.add(name));
+                more += entry.more;
+            });
+            if (more > 0) names.add(`${more} more`);
+            setTypingUsers(names);
+        };
+        const typingSweep = setInterval(() => {
+            const cutoff = Date.now() - TYPING_STALE_MS;
+            let changed = false;
+            typingByNode.forEach((entry, node) => {
+                if (entry.at < cutoff) {
+                    typingByNode.delete(node);
+                    changed = true;
+                }
+            });
+            if (changed) showTyping();
+        }, 1000);
+
+        // Load history: the newest page; older ones come from loadOlder
         const loadHistory = async () => {
             try {
-                const res = await api.get(`/api/groups/${groupId}/messages`);
-                setMessages(res.data || []);
+                const res = await api.get(`/api/groups/${groupId}/messages`, { params: { limit: HISTORY_PAGE_SIZE } });
+                setMessages((prev) => mergeById(prev, res.data || []));
+                setHasOlder((res.data || []).length === HISTORY_PAGE_SIZE);
                 scrollToBottom();
             } catch (err) {
                 console.error("Failed to load chat history", err);
@@ -90,20 +157,41 @@ const ChatBox = ({ groupId }) => {
         };
         loadHistory();
 
-        // Connect WebSocket
+        // Everything sent while this client was not subscribed (slow-consumer disconnects, dropped
+        // frames, network blips), fetched in max-delta pages
+        const catchUp = async () => {
+            let since = lastSeenIdRef.current;
+            if (since === null) return; // history not loaded yet; it will include these
+            try {
+                while (since) {
+                    const res = await api.get(`/api/groups/${groupId}/messages`, { params: { since } });
+                    setMessages((prev) => mergeById(prev, res.data.items));
+                    since = res.data.nextCursor;
+                }
+                scrollToBottom();
+            } catch (err) {
+                console.error("Failed to catch up on missed messages", err);
+            }
+        };
+
+        // Connect WebSocket; stompjs does not reconnect on its own, so a lost connection schedules a new one
         let client = null;
-        try {
+        let socket = null;
+        let reconnectTimer = null;
+        let closed = false;
+
+        const connect = () => {
             // NATIVE WEBSOCKET CONNECTION (Robust, no polyfills needed)
             const wsUrl = 'ws://localhost:8080/ws-raw';
             console.log("Attempting Raw WebSocket Connection to:", wsUrl);
 
             // Create native WebSocket
-            const socket = new WebSocket(wsUrl);
+            socket = new WebSocket(wsUrl);
 
             // Pass to Stomp
             client = Stomp.over(socket);
             client.debug = (str) => console.log(str);
-            client.reconnect_delay = 5000; // Auto-reconnect
+            const current = client;
 
             const token = localStorage.getItem('token');
             const headers = token ? { 'Authorization': `Bearer ${token}` } : {};
@@ -112,57 +200,136 @@ const ChatBox = ({ groupId }) => {
                 console.log('Connected to Stomp (Raw):', frame);
                 setError(null);
                 // Chat Subscription
-                client.subscribe(`/topic/group/${groupId}`, (message) => {
+                current.subscribe(`/topic/group/${groupId}`, (message) => {
                     const receivedMsg = JSON.parse(message.body);
-                    setMessages((prev) => [...prev, receivedMsg]);
+                    setMessages((prev) => mergeById(prev, [receivedMsg]));
                     scrollToBottom();
                 });
+                catchUp();
 
-                // Typing Subscription
-                client.subscribe(`/topic/group/${groupId}/typing`, (message) => {
+                // Typing Subscription: each server node sends its full list of the room's typers on each change
+                current.subscribe(`/topic/group/${groupId}/typing`, (message) => {
                     const data = JSON.parse(message.body);
-                    if (data.email === user?.email) return; // Ignore self
-
-                    setTypingUsers(prev => {
-                        const newSet = new Set(prev);
-                        if (data.isTyping === "true") {
-                            newSet.add(data.anonymousName);
-                        } else {
-                            newSet.delete(data.anonymousName);
-                        }
-                        return newSet;
-                    });
+                    const typers = data.typers.filter(name => name !== user?.anonymousName); // Ignore self
+                    if (typers.length === 0 && data.more === 0) {
+                        typingByNode.delete(data.node);
+                    } else {
+                        typingByNode.set(data.node, { typers, more: data.more, at: Date.now() });
+                    }
+                    showTyping();
                 });
 
-                // Active Users Subscription
-                client.subscribe(`/topic/group/${groupId}/active`, (message) => {
-                    setActiveUsers(JSON.parse(message.body));
+                // Active Users: one snapshot, then deltas ({since, version, joined, left}) in order.
+                // Versions are per server node, so the snapshot comes over this socket, not HTTP.
+                let newestSeenWhileLoading = 0;
+                const loadPresence = () => {
+                    presenceVersionRef.current = null;
+                    const snapshotSub = current.subscribe(`/app/group/${groupId}/presence`, (message) => {
+                        snapshotSub.unsubscribe();
+                        const snapshot = JSON.parse(message.body);
+                        presenceVersionRef.current = snapshot.version;
+                        setActiveUsers(snapshot.users);
+                        // A delta arrived while the snapshot was in flight and the snapshot predates it
+                        if (newestSeenWhileLoading > snapshot.version) loadPresence();
+                        newestSeenWhileLoading = 0;
+                    });
+                };
+                current.subscribe(`/topic/group/${groupId}/active`, (message) => {
+                    const delta = JSON.parse(message.body);
+                    if (presenceVersionRef.current === null) {
+                        newestSeenWhileLoading = Math.max(newestSeenWhileLoading, delta.version);
+                        return;
+                    }
+                    if (delta.version <= presenceVersionRef.current) return;
+                    if (delta.since !== presenceVersionRef.current) {
+                        loadPresence(); // missed a delta
+                        return;
+                    }
+                    presenceVersionRef.current = delta.version;
+                    setActiveUsers(prev => [
+                        ...prev.filter(u => !delta.left.includes(u)),
+                        ...delta.joined.filter(u => !prev.includes(u))
+                    ]);
                 });
+                loadPresence();
 
                 // Reaction Subscription
-                client.subscribe(`/topic/group/${groupId}/react`, (message) => {
+                current.subscribe(`/topic/group/${groupId}/react`, (message) => {
                     const updatedMessage = JSON.parse(message.body);
                     setMessages((prev) => prev.map(msg => msg.id === updatedMessage.id ? updatedMessage : msg));
                 });
+
+                // Updates: a full message after an edit or vote, or {expiredIds, message} when messages expire
+                current.subscribe(`/topic/group/${groupId}/update`, (message) => {
+                    const update = JSON.parse(message.body);
+                    if (update.expiredIds) {
+                        const expired = new Set(update.expiredIds);
+                        setMessages((prev) => prev.map(msg => {
+                            const replyExpired = msg.replyTo && expired.has(msg.replyTo.id);
+                            if (!expired.has(msg.id) && !replyExpired) return msg;
+                            return {
+                                ...msg,
+                                ...(expired.has(msg.id) ? { message: update.message, expired: true } : {}),
+                                ...(replyExpired ? { replyTo: { ...msg.replyTo, message: update.message } } : {})
+                            };
+                        }));
+                        return;
+                    }
+                    setMessages((prev) => prev.map(msg => msg.id === update.id ? update : msg));
+                });
             }, (err) => {
                 console.error('STOMP connection error', err);
                 const msg = err && typeof err === 'object' && err.headers && err.headers.message ? err.headers.message : "Connection lost";
                 setError(msg);
+                if (!closed) {
+                    clearTimeout(reconnectTimer);
+                    reconnectTimer = setTimeout(connect, RECONNECT_DELAY_MS);
+                }
             });
 
             stompClientRef.current = client;
+        };
+
+        try {
+            connect();
         } catch (e) {
             console.error("WebSocket init error", e);
             setError("Failed to initialize chat");
         }
 
         return () => {
+            closed = true;
+            clearTimeout(reconnectTimer);
+            clearInterval(typingSweep);
             if (client && client.connected) {
                 client.disconnect();
+            } else if (socket) {
+                socket.close();
             }
         };
     }, [groupId, user?.email]); // Add user?.email dependency
 
+    // Pages back through history by id, from the oldest message currently shown
+    const loadOlder = async () => {
+        if (loadingOlder || messages.length === 0) return;
+        setLoadingOlder(true);
+        const requestedFor = groupId;
+        try {
+            const res = await api.get(`/api/groups/${groupId}/messages`, {
+                params: { before: messages[0].id, limit: HISTORY_PAGE_SIZE }
+            });
+            if (requestedFor !== groupIdRef.current) return; // switched rooms meanwhile
+            const older = res.data || [];
+            prependAnchorRef.current = scrollContainerRef.current ? scrollContainerRef.current.scrollHeight : null;
+            setMessages((prev) => mergeById(prev, older));
+            setHasOlder(older.length === HISTORY_PAGE_SIZE);
+        } catch (err) {
+            console.error("Failed to load older messages", err);
+        } finally {
+            setLoadingOlder(false);
+        }
+    };
+
     const scrollToBottom = () => {
         setTimeout(() => {
             messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
@@ -177,30 +344,21 @@ const ChatBox = ({ groupId }) => {
         // Clear existing timeout
         if (typingTimeoutRef.current) clearTimeout(typingTimeoutRef.current);
 
-        // Send typing started
-        const token = localStorage.getItem('token');
-        let email = '';
-        let anonymousName = user?.anonymousName || 'Anonymous';
-
-        if (token) {
-            try {
-                const decoded = jwtDecode(token);
-                email = decoded.sub;
-            } catch (err) { }
+        // Send typing started; the server ignores refreshes within a second anyway
+        const now = Date.now();
+        if (now - lastTypingSentRef.current >= 1000) {
+            lastTypingSentRef.current = now;
+            stompClientRef.current.send(`/app/chat/${groupId}/typing`, {}, JSON.stringify({
+                anonymousName: user?.anonymousName || 'Anonymous',
+                isTyping: "true"
+            }));
         }
 
-        stompClientRef.current.send(`/app/chat/${groupId}/typing`, {}, JSON.stringify({
-            email: email,
-            anonymousName: anonymousName,
-            isTyping: "true"
-        }));
-
         // Set timeout to stop typing
         typingTimeoutRef.current = setTimeout(() => {
+            lastTypingSentRef.current = 0;
             if (stompClientRef.current && stompClientRef.current.connected) {
                 stompClientRef.current.send(`/app/chat/${groupId}/typing`, {}, JSON.stringify({
-                    email: email,
-                    anonymousName: anonymousName,
                     isTyping: "false"
                 }));
             }
@@ -336,7 +494,18 @@ const ChatBox = ({ groupId }) => {
                 </div>
             </div>
 
-            <div className="flex-1 overflow-y-auto p-4 space-y-4">
+            <div ref={scrollContainerRef} className="flex-1 overflow-y-auto p-4 space-y-4">
+                {hasOlder && (
+                    <div className="flex justify-center">
+                        <button
+                            onClick={loadOlder}
+                            disabled={loadingOlder}
+                            className="text-xs text-neutral-400 hover:text-white bg-neutral-900 px-3 py-1 rounded-full disabled:opacity-50"
+                        >
+                            {loadingOlder ? 'Loading...' : 'Load older messages'}
+                        </button>
+                    </div>
+                )}
                 <AnimatePresence initial={false}>
                     {Array.isArray(messages) && messages.map((msg, idx) => {
                         const isMe = user?.email && msg.user?.email === user.email;
@@ -346,7 +515,7 @@ const ChatBox = ({ groupId }) => {
 
                         if (isSystem) {
                             return (
-                                <div key={idx} className="flex justify-center my-4">
+                                <div key={msg.id || idx} className="flex justify-center my-4">
                                     <span className="text-xs text-neutral-500 bg-neutral-900 px-3 py-1 rounded-full">
                                         {msg.message.replace('[SYSTEM]', '').trim()}
                                     </span>
@@ -394,8 +563,8 @@ const ChatBox = ({ groupId }) => {
                                                 </div>
                                                 <div className="space-y-2">
                                                     {msg.pollOptions.map((opt, i) => {
-                                                        const votes = msg.votes ? msg.votes.filter(v => v.optionIndex === i).length : 0;
-                                                        const totalVotes = msg.votes ? msg.votes.length : 0;
+                                                        const votes = msg.pollTallies?.[i] || 0;
+                                                        const totalVotes = msg.totalVotes || 0;
                                                         const percent = totalVotes > 0 ? (votes / totalVotes) * 100 : 0;
 
                                                         return (
@@ -421,7 +590,7 @@ const ChatBox = ({ groupId }) => {
                                                     })}
                                                 </div>
                                                 <div className="mt-2 text-[10px] text-white/40 text-right">
-                                                    {msg.votes?.length || 0} total votes
+                                                    {msg.totalVotes || 0} total votes
                                                 </div>
                                             </div>
                                         ) : (
@@ -451,7 +620,7 @@ const ChatBox = ({ groupId }) => {
                                         )}
                                     </div>
                                 </div>
-                                {msg.expiresAt && (
+                                {msg.expiresAt && !msg.expired && (
                                     <span className="text-[9px] text-red-500/70 mt-0.5 px-1 flex items-center gap-1">
                                         ⏱ Expires at {new Date(msg.expiresAt).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' })}
                                     </span>
@@ -1,4 +1,4 @@
-import { useEffect, useState } from 'react';
+import { useEffect, useRef, useState } from 'react';
 import api from '../api/axios';
 import CreatePost from '../components/CreatePost';
 import PostCard from '../components/PostCard';
@@ -6,11 +6,17 @@ import TrendingSidebar from '../components/TrendingSidebar';
 import { HiFire, HiChip, HiLightningBolt } from 'react-icons/hi';
 import { motion, AnimatePresence } from 'framer-motion';
 
+const FEED_PAGE_SIZE = 20;
+
 const Feed = () => {
     const [posts, setPosts] = useState([]);
     const [loading, setLoading] = useState(true);
     const [filter, setFilter] = useState('latest');
     const [timeFilter, setTimeFilter] = useState('all');
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const timeFilterRef = useRef(timeFilter);
+    timeFilterRef.current = timeFilter;
 
     const getSortedPosts = () => {
         const sorted = [...posts];
@@ -22,17 +28,54 @@ const Feed = () => {
         return sorted;
     };
 
+    const feedParams = (cursor) => ({
+        timeRange: timeFilter !== 'all' ? timeFilter : undefined,
+        cursor: cursor || undefined,
+        limit: FEED_PAGE_SIZE
+    });
+
+    // First page of the keyset feed; older pages come from loadMore
     const fetchPosts = async () => {
         setLoading(true);
+        const requestedFor = timeFilter;
+        try {
+            const res = await api.get('/api/posts/feed', { params: feedParams() });
+            if (requestedFor !== timeFilterRef.current) return; // filter changed meanwhile
+            setPosts(res.data.items);
+            setNextCursor(res.data.nextCursor);
+        } catch (error) {
+            console.error(error);
+        } finally {
+            if (requestedFor === timeFilterRef.current) setLoading(false);
+        }
+    };
+
+    const loadMore = async () => {
+        if (!nextCursor || loadingMore) return;
+        setLoadingMore(true);
+        const requestedFor = timeFilter;
         try {
-            const res = await api.get('/api/posts', {
-                params: { timeRange: timeFilter !== 'all' ? timeFilter : undefined }
+            const res = await api.get('/api/posts/feed', { params: feedParams(nextCursor) });
+            if (requestedFor !== timeFilterRef.current) return;
+            setPosts((prev) => {
+                const seen = new Set(prev.map((p) => p.id));
+                return [...prev, ...res.data.items.filter((p) => !seen.has(p.id))];
             });
-            setPosts(res.data);
+            setNextCursor(res.data.nextCursor);
         } catch (error) {
             console.error(error);
         } finally {
-            setLoading(false);
+            setLoadingMore(false);
+        }
+    };
+
+    // After a like or repost only that post is re-read, so the pages loaded so far stay put
+    const refreshPost = async (postId) => {
+        try {
+            const res = await api.get(`/api/posts/${postId}`);
+            setPosts((prev) => prev.map((p) => (p.id === postId ? res.data : p)));
+        } catch (error) {
+            console.error(error);
         }
     };
 
@@ -130,11 +173,22 @@ const Feed = () => {
                                         transition={{ duration: 0.4, delay: index * 0.05 }}
                                     >
                                         <div className="glass-panel rounded-xl overflow-hidden hover:border-white/20 transition-all duration-300 bg-black/20 backdrop-blur-sm border border-white/5 hover:shadow-[0_0_20px_rgba(0,0,0,0.5)]">
-                                            <PostCard post={post} refreshPosts={fetchPosts} />
+                                            <PostCard post={post} refreshPosts={() => refreshPost(post.id)} />
                                         </div>
                                     </motion.div>
                                 ))}
                             </AnimatePresence>
+                            {nextCursor && (
+                                <div className="flex justify-center">
+                                    <button
+                                        onClick={loadMore}
+                                        disabled={loadingMore}
+                                        className="text-xs font-mono tracking-widest text-neutral-400 hover:text-neon-cyan border border-white/10 hover:border-neon-cyan/40 rounded-md px-4 py-2 transition-colors disabled:opacity-50"
+                                    >
+                                        {loadingMore ? 'DECODING...' : 'LOAD OLDER SIGNALS'}
+                                    </button>
+                                </div>
+                            )}
                             {posts.length === 0 && (
                                 <div className="text-center py-20 text-neutral-600 font-mono text-xs border border-dashed border-white/10 rounded-xl">
                                     [NO SIGNALS DETECTED IN SECTOR]
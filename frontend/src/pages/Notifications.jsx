@@ -10,11 +10,9 @@ const Notifications = () => {
     useEffect(() => {
         const fetchNotifications = async () => {
             try {
-                // In a real app, this would be a dedicated notifications endpoint
-                // For now, we filter posts for [SYSTEM BROADCAST]
-                const res = await api.get('/api/posts');
-                const broadcasts = res.data.filter(p => p.content.startsWith('[SYSTEM BROADCAST]'));
-                setNotifications(broadcasts);
+                // Admin broadcasts are posts starting with [SYSTEM BROADCAST], newest first
+                const res = await api.get('/api/posts/broadcasts');
+                setNotifications(res.data);
             } catch (err) {
                 console.error("Failed to load notifications");
             } finally {
@@ -15,20 +15,14 @@ const PostDetail = () => {
 
     const fetchPost = async () => {
         try {
-            // Re-using fetch all posts logic for now OR create specific endpoint
-            // Ideally backend should have /api/posts/{id}
-            // Checking if we have get info endpoint. For now, let's assume valid ID or fetch list.
-            // Actually, frontend PostCard has post object, but we are deep linking.
-            // Let's implement fetch by ID on frontend or just assume user navigates from feed.
-            // But good practice is to fetch fresh.
-            // Wait, PostController has getAllPosts only. I need getPostById?
-            // Or I can just fetch all and filter (inefficient but works for small app).
-            // Let's assume we need to filter from all posts for now as I didn't add getById in Controller Plan.
-            // Wait, plan said 'Post Detail view'.
-            const res = await api.get('/api/posts');
-            const found = res.data.find(p => p.id === parseInt(postId));
-            setPost(found);
+            // Deep links land here without a post object, so always fetch it fresh
+            const res = await api.get(`/api/posts/${postId}`);
+            setPost(res.data);
         } catch (error) {
+            if (error.response?.status === 404) {
+                setPost(null);
+                return;
+            }
             console.error("Failed to load post", error);
             toast.error("Failed to load post");
         } finally {